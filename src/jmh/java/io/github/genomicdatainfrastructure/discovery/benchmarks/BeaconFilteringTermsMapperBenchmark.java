@@ -0,0 +1,50 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.benchmarks;
+
+import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconFilteringTermsResponse;
+import io.github.genomicdatainfrastructure.discovery.utils.BeaconFilteringTermsMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BeaconFilteringTermsMapperBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int items;
+
+    BeaconFilteringTermsResponse response;
+
+    @Setup
+    public void setUp() {
+        var body = Payloads.responseBody("filtering_terms.json");
+        var content = body.withObject("/response");
+        content.set("filteringTerms", Payloads.repeat(content.get("filteringTerms"), items,
+                (it, index) -> it.put("id", "%s-%d".formatted(it.path("id").asText(), index))));
+        response = Payloads.read(body, BeaconFilteringTermsResponse.class);
+    }
+
+    @Benchmark
+    public FacetGroup from() {
+        return BeaconFilteringTermsMapper.from(response);
+    }
+}
@@ -0,0 +1,66 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.benchmarks;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import io.github.genomicdatainfrastructure.discovery.utils.CkanFacetsQueryBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CkanFacetsQueryBuilderBenchmark {
+
+    private static final List<String> FACETS = List.of(
+            "access_rights",
+            "theme",
+            "tags",
+            "spatial_uri",
+            "organization",
+            "publisher_name",
+            "res_format"
+    );
+
+    @Param({"10", "1000", "100000"})
+    int items;
+
+    DatasetSearchQuery query;
+
+    @Setup
+    public void setUp() {
+        var facets = new ArrayList<DatasetSearchQueryFacet>(items);
+        for (var i = 0; i < items; i++) {
+            facets.add(new DatasetSearchQueryFacet()
+                    .facetGroup(i % 10 == 0 ? "beacon" : "ckan")
+                    .facet(FACETS.get(i % FACETS.size()))
+                    .value("http://purl.obolibrary.org/obo/NCIT_C%d".formatted(i)));
+        }
+        query = new DatasetSearchQuery()
+                .facets(facets);
+    }
+
+    @Benchmark
+    public String buildFacetQuery() {
+        return CkanFacetsQueryBuilder.buildFacetQuery(query);
+    }
+}
@@ -0,0 +1,73 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.benchmarks;
+
+import io.github.genomicdatainfrastructure.discovery.model.RetrievedDataset;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.utils.PackageShowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PackageShowMapperBenchmark {
+
+    private static final List<String> REPEATED_FIELDS = List.of(
+            "theme",
+            "resources",
+            "tags",
+            "language",
+            "conforms_to",
+            "has_version"
+    );
+
+    @Param({"10", "1000", "100000"})
+    int items;
+
+    CkanPackage ckanPackage;
+
+    @Setup
+    public void setUp() {
+        var body = Payloads.responseBody("package_show.json");
+        var result = body.withObject("/result");
+        var source = result.has("result") ? result.withObject("/result") : result;
+
+        for (var field : REPEATED_FIELDS) {
+            var values = source.path(field);
+            if (values.isArray() && !values.isEmpty()) {
+                source.set(field, Payloads.repeat(values, items, (it, index) -> {
+                    if (it.has("name")) {
+                        it.put("name", "%s-%d".formatted(it.path("name").asText(), index));
+                    }
+                    if (it.has("id")) {
+                        it.put("id", "%s-%d".formatted(it.path("id").asText(), index));
+                    }
+                }));
+            }
+        }
+        ckanPackage = Payloads.read(source, CkanPackage.class);
+    }
+
+    @Benchmark
+    public RetrievedDataset from() {
+        return PackageShowMapper.from(ckanPackage);
+    }
+}
@@ -0,0 +1,65 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.benchmarks;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.utils.PackagesSearchResponseMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PackagesSearchResponseMapperBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    int items;
+
+    PackagesSearchResponse response;
+
+    @Setup
+    public void setUp() {
+        var body = Payloads.responseBody("package_search.json");
+        var result = body.withObject("/result");
+        var packages = Payloads.repeat(result.get("results"), items, (it, index) -> {
+            it.put("id", "%s-%d".formatted(it.path("id").asText(), index));
+            it.put("name", "%s-%d".formatted(it.path("name").asText(), index));
+            it.put("identifier", "%s-%d".formatted(it.path("identifier").asText(), index));
+        });
+        result.set("results", packages);
+        result.put("count", items);
+        response = Payloads.read(body, PackagesSearchResponse.class);
+
+        if (!PackagesSearchResponseMapper.from(response)
+                .equals(StreamPackagesSearchResponseMapper.from(response))) {
+            throw new IllegalStateException("Mappers produced different responses");
+        }
+    }
+
+    @Benchmark
+    public DatasetsSearchResponse from() {
+        return PackagesSearchResponseMapper.from(response);
+    }
+
+    @Benchmark
+    public DatasetsSearchResponse fromWithStreams() {
+        return StreamPackagesSearchResponseMapper.from(response);
+    }
+}
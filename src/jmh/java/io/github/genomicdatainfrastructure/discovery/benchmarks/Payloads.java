@@ -0,0 +1,53 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.experimental.UtilityClass;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.ObjIntConsumer;
+
+@UtilityClass
+public class Payloads {
+
+    private final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true)
+            .findAndRegisterModules();
+
+    public ObjectNode responseBody(String mapping) {
+        try (var stream = Payloads.class.getClassLoader()
+                .getResourceAsStream("mappings/%s".formatted(mapping))) {
+            var body = MAPPER.readTree(stream).path("response").path("jsonBody");
+            return (ObjectNode) body.deepCopy();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ArrayNode repeat(JsonNode source, int items, ObjIntConsumer<ObjectNode> customizer) {
+        var repeated = MAPPER.createArrayNode();
+        for (var i = 0; i < items; i++) {
+            var copy = (ObjectNode) source.get(i % source.size()).deepCopy();
+            customizer.accept(copy, i);
+            repeated.add(copy);
+        }
+        return repeated;
+    }
+
+    public <T> T read(JsonNode node, Class<T> type) {
+        try {
+            return MAPPER.treeToValue(node, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.api.BeaconQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsResponseContent;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconResultSet;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.api.KeycloakQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.model.KeycloakTokenResponse;
+import io.github.genomicdatainfrastructure.discovery.repositories.BeaconDatasetsRepository;
+import io.github.genomicdatainfrastructure.discovery.services.BeaconAuthorizationService;
+import io.github.genomicdatainfrastructure.discovery.services.BeaconCallGuard;
+import io.github.genomicdatainfrastructure.discovery.services.BeaconFilteringTermsService;
+import io.github.genomicdatainfrastructure.discovery.services.CkanHedging;
+import io.github.genomicdatainfrastructure.discovery.services.CkanSearchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.smallrye.mutiny.Uni;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for concurrent Beacon searches in blocking style, as the virtual-thread mode does, on a
+ * platform pool the size of the default Quarkus worker pool and on one virtual thread per search.
+ * The stand-in Beacon answers after {@link #BEACON_LATENCY}, so the platform pool needs one such
+ * wait per 200 searches while the virtual threads wait once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class VirtualThreadSearchBenchmark {
+
+    private static final int PLATFORM_WORKERS = 200;
+    private static final Duration BEACON_LATENCY = Duration.ofMillis(500);
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"200", "2000"})
+    int searches;
+
+    BeaconDatasetsRepository repository;
+    ExecutorService executor;
+    int round;
+
+    @Setup
+    public void setUp() {
+        var ckanQueryApi = mock(CkanQueryApi.class);
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(1)
+                                .results(List.of())
+                                .build())
+                        .build()));
+
+        var keycloakQueryApi = mock(KeycloakQueryApi.class);
+        when(keycloakQueryApi.retriveIdpTokens(any(), any()))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .expiresIn(300)
+                        .build()));
+
+        var beaconQueryApi = mock(BeaconQueryApi.class);
+        when(beaconQueryApi.listIndividuals(any(), any()))
+                .thenReturn(Uni.createFrom().item(BeaconIndividualsResponse.builder()
+                        .response(BeaconIndividualsResponseContent.builder()
+                                .resultSets(List.of(BeaconResultSet.builder()
+                                        .id("id")
+                                        .setType("dataset")
+                                        .resultsCount(1)
+                                        .build()))
+                                .build())
+                        .build())
+                        .onItem()
+                        .delayIt()
+                        .by(BEACON_LATENCY));
+
+        var beaconFilteringTermsService = mock(BeaconFilteringTermsService.class);
+        when(beaconFilteringTermsService.listFilteringTerms(any()))
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
+                        .key("beacon")
+                        .facets(List.of())
+                        .build()));
+
+        var meterRegistry = new SimpleMeterRegistry();
+        repository = new BeaconDatasetsRepository(
+                new CkanSearchService(
+                        ckanQueryApi,
+                        1000,
+                        Duration.ofMinutes(1),
+                        1000,
+                        100,
+                        false,
+                        new CkanHedging(false, 0.95, Duration.ZERO, 0.1, Optional.empty(),
+                                meterRegistry),
+                        meterRegistry
+                ),
+                beaconQueryApi,
+                new BeaconAuthorizationService(
+                        keycloakQueryApi,
+                        "beaconIdpAlias",
+                        1000,
+                        Duration.ofSeconds(30),
+                        Duration.ofSeconds(60),
+                        Duration.ofSeconds(30),
+                        meterRegistry
+                ),
+                beaconFilteringTermsService,
+                new BeaconCallGuard(
+                        200,
+                        100,
+                        0.5,
+                        Duration.ofSeconds(30),
+                        0.99,
+                        3,
+                        Duration.ofSeconds(20),
+                        Duration.ofSeconds(20),
+                        meterRegistry
+                ),
+                1000,
+                Duration.ofMinutes(1),
+                meterRegistry,
+                OpenTelemetry.noop().getTracer("benchmark")
+        );
+        // Context propagation initialises itself on first use and fails if many threads race it
+        repository.search(query("setup"), "dummy").await().indefinitely();
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_WORKERS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Benchmark
+    public int search() throws Exception {
+        // A fresh filter value per search and round keeps the Beacon results cache out of the way
+        round++;
+        var pending = new ArrayList<Future<DatasetsSearchResponse>>(searches);
+        for (var i = 0; i < searches; i++) {
+            var query = query("value-%d-%d".formatted(round, i));
+            pending.add(executor.submit(() -> repository.search(query, "dummy")
+                    .await()
+                    .indefinitely()));
+        }
+
+        var found = 0;
+        for (var search : pending) {
+            found += search.get().getCount();
+        }
+        return found;
+    }
+
+    private DatasetSearchQuery query(String value) {
+        return DatasetSearchQuery.builder()
+                .facets(List.of(DatasetSearchQueryFacet.builder()
+                        .facetGroup("beacon")
+                        .facet("key")
+                        .value(value)
+                        .build()))
+                .build();
+    }
+}
@@ -5,14 +5,19 @@
 package io.github.genomicdatainfrastructure.discovery.api;
 
 import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsRetrieveQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsRetrieveResponse;
 import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
 import io.github.genomicdatainfrastructure.discovery.model.RetrievedDataset;
 import io.github.genomicdatainfrastructure.discovery.services.RetrieveDatasetService;
 import io.github.genomicdatainfrastructure.discovery.services.SearchDatasetsService;
-import io.quarkus.oidc.runtime.OidcJwtCallerPrincipal;
+import io.github.genomicdatainfrastructure.discovery.utils.AccessTokens;
+import io.quarkus.arc.properties.UnlessBuildProperty;
 import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Uni;
 import lombok.RequiredArgsConstructor;
 
+@UnlessBuildProperty(name = "discovery.virtual-threads.enabled", stringValue = "true", enableIfMissing = true)
 @RequiredArgsConstructor
 public class DatasetQueryApiImpl implements DatasetQueryApi {
 
@@ -21,20 +26,19 @@ public class DatasetQueryApiImpl implements DatasetQueryApi {
     private final RetrieveDatasetService retrievedDatasetService;
 
     @Override
-    public DatasetsSearchResponse datasetSearch(DatasetSearchQuery datasetSearchQuery) {
-        return searchDatasetsService.search(datasetSearchQuery, accessToken());
+    public Uni<DatasetsSearchResponse> datasetSearch(DatasetSearchQuery datasetSearchQuery) {
+        return searchDatasetsService.search(datasetSearchQuery, AccessTokens.rawToken(identity));
     }
 
     @Override
-    public RetrievedDataset retrieveDataset(String id) {
-        return retrievedDatasetService.retrieve(id, accessToken());
+    public Uni<RetrievedDataset> retrieveDataset(String id) {
+        return retrievedDatasetService.retrieve(id, AccessTokens.rawToken(identity));
     }
 
-    private String accessToken() {
-        if (identity.isAnonymous()) {
-            return null;
-        }
-        var principal = (OidcJwtCallerPrincipal) identity.getPrincipal();
-        return principal.getRawToken();
+    @Override
+    public Uni<DatasetsRetrieveResponse> retrieveDatasets(
+            DatasetsRetrieveQuery datasetsRetrieveQuery) {
+        return retrievedDatasetService.retrieveAll(datasetsRetrieveQuery,
+                AccessTokens.rawToken(identity));
     }
 }
@@ -0,0 +1,43 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.api;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
+import io.github.genomicdatainfrastructure.discovery.services.SearchDatasetsService;
+import io.github.genomicdatainfrastructure.discovery.utils.AccessTokens;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Multi;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import lombok.RequiredArgsConstructor;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.jboss.resteasy.reactive.common.util.RestMediaType;
+
+/**
+ * Serves the dataset_export operation of discovery.yaml. The generator only returns a {@code Uni}
+ * of the whole response, so this resource does not implement the generated DatasetExportApi.
+ */
+@Path("/api/v1/datasets/export")
+@RequiredArgsConstructor
+public class NdjsonDatasetExportApi {
+
+    private final SecurityIdentity identity;
+    private final SearchDatasetsService searchDatasetsService;
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(RestMediaType.APPLICATION_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<SearchedDataset> datasetExport(DatasetSearchQuery datasetSearchQuery) {
+        return searchDatasetsService.export(
+                datasetSearchQuery,
+                AccessTokens.rawToken(identity)
+        );
+    }
+}
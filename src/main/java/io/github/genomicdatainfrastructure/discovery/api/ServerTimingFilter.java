@@ -0,0 +1,51 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.api;
+
+import io.github.genomicdatainfrastructure.discovery.utils.ServerTiming;
+import jakarta.inject.Singleton;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.jboss.resteasy.reactive.server.ServerResponseFilter;
+import org.jboss.resteasy.reactive.server.SimpleResourceInfo;
+
+import java.util.Set;
+
+@Singleton
+public class ServerTimingFilter {
+
+    private static final Set<String> TIMED_OPERATIONS = Set.of("datasetSearch", "retrieveDataset",
+            "retrieveDatasets");
+
+    private final boolean enabled;
+
+    public ServerTimingFilter(
+            @ConfigProperty(name = "discovery.server-timing.enabled") boolean enabled
+    ) {
+        this.enabled = enabled;
+    }
+
+    @ServerRequestFilter
+    public void startTiming(SimpleResourceInfo resourceInfo) {
+        if (enabled
+                && DatasetQueryApi.class.isAssignableFrom(resourceInfo.getResourceClass())
+                && TIMED_OPERATIONS.contains(resourceInfo.getMethodName())) {
+            ServerTiming.start();
+        }
+    }
+
+    @ServerResponseFilter
+    public void addServerTiming(ContainerResponseContext response) {
+        if (!enabled) {
+            return;
+        }
+
+        var timing = ServerTiming.finish();
+        if (timing != null) {
+            response.getHeaders().putSingle(ServerTiming.HEADER, timing.header());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.api;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.services.CkanStreamingSearchService;
+import io.github.genomicdatainfrastructure.discovery.utils.AccessTokens;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import lombok.RequiredArgsConstructor;
+import org.jboss.resteasy.reactive.RestMulti;
+
+/**
+ * Serves the dataset_search_stream operation of discovery.yaml. The generator only returns a
+ * {@code Uni} of the whole response, so this resource does not implement the generated
+ * DatasetStreamingApi.
+ */
+@IfBuildProperty(name = "discovery.search.streaming.enabled", stringValue = "true")
+@Path("/api/v1/datasets/search/stream")
+@RequiredArgsConstructor
+public class StreamingDatasetQueryApi {
+
+    private final SecurityIdentity identity;
+    private final CkanStreamingSearchService ckanStreamingSearchService;
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public RestMulti<byte[]> datasetSearch(DatasetSearchQuery datasetSearchQuery) {
+        var chunks = ckanStreamingSearchService.search(
+                datasetSearchQuery,
+                AccessTokens.rawToken(identity)
+        );
+        return RestMulti.fromMultiData(chunks)
+                .encodeAsJsonArray(false)
+                .build();
+    }
+}
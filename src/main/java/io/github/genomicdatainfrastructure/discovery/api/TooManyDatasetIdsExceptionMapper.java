@@ -0,0 +1,34 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.api;
+
+import static jakarta.ws.rs.core.Response.Status.BAD_REQUEST;
+
+import io.github.genomicdatainfrastructure.discovery.exceptions.TooManyDatasetIdsException;
+import io.github.genomicdatainfrastructure.discovery.model.ErrorResponse;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+@Provider
+public class TooManyDatasetIdsExceptionMapper implements
+        ExceptionMapper<TooManyDatasetIdsException> {
+
+    @Override
+    public Response toResponse(TooManyDatasetIdsException exception) {
+        var errorResponse = new ErrorResponse(
+                "Too Many Dataset IDs",
+                BAD_REQUEST.getStatusCode(),
+                exception.getMessage()
+        );
+
+        return Response
+                .status(BAD_REQUEST)
+                .entity(errorResponse)
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.api;
+
+import static jakarta.ws.rs.core.Response.Status.BAD_REQUEST;
+
+import io.github.genomicdatainfrastructure.discovery.exceptions.UnsupportedFacetGroupException;
+import io.github.genomicdatainfrastructure.discovery.model.ErrorResponse;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+@Provider
+public class UnsupportedFacetGroupExceptionMapper implements
+        ExceptionMapper<UnsupportedFacetGroupException> {
+
+    @Override
+    public Response toResponse(UnsupportedFacetGroupException exception) {
+        var errorResponse = new ErrorResponse(
+                "Unsupported Facet Group",
+                BAD_REQUEST.getStatusCode(),
+                exception.getMessage()
+        );
+
+        return Response
+                .status(BAD_REQUEST)
+                .entity(errorResponse)
+                .type(MediaType.APPLICATION_JSON)
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.api;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsRetrieveQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsRetrieveResponse;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.RetrievedDataset;
+import io.github.genomicdatainfrastructure.discovery.services.RetrieveDatasetService;
+import io.github.genomicdatainfrastructure.discovery.services.SearchDatasetsService;
+import io.github.genomicdatainfrastructure.discovery.utils.AccessTokens;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Serves the operations of {@link DatasetQueryApi} with blocking signatures, one virtual thread
+ * per request. Quarkus only runs a method on a virtual thread when {@code @RunOnVirtualThread}
+ * sits on the resource method itself, which the generated Uni interface cannot carry.
+ */
+@IfBuildProperty(name = "discovery.virtual-threads.enabled", stringValue = "true")
+@Path("/api/v1/datasets")
+@RequiredArgsConstructor
+public class VirtualThreadDatasetQueryApi {
+
+    private final SecurityIdentity identity;
+    private final SearchDatasetsService searchDatasetsService;
+    private final RetrieveDatasetService retrievedDatasetService;
+
+    @POST
+    @Path("/search")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RunOnVirtualThread
+    public DatasetsSearchResponse datasetSearch(DatasetSearchQuery datasetSearchQuery) {
+        return searchDatasetsService.search(datasetSearchQuery, AccessTokens.rawToken(identity))
+                .await()
+                .indefinitely();
+    }
+
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @RunOnVirtualThread
+    public RetrievedDataset retrieveDataset(@PathParam("id") String id) {
+        return retrievedDatasetService.retrieve(id, AccessTokens.rawToken(identity))
+                .await()
+                .indefinitely();
+    }
+
+    @POST
+    @Path("/retrieve")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RunOnVirtualThread
+    public DatasetsRetrieveResponse retrieveDatasets(DatasetsRetrieveQuery datasetsRetrieveQuery) {
+        return retrievedDatasetService.retrieveAll(datasetsRetrieveQuery,
+                AccessTokens.rawToken(identity))
+                .await()
+                .indefinitely();
+    }
+}
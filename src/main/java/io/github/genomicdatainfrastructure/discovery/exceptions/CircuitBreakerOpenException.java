@@ -0,0 +1,14 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.exceptions;
+
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private static final String MESSAGE = "Circuit breaker %s is open";
+
+    public CircuitBreakerOpenException(String name) {
+        super(MESSAGE.formatted(name));
+    }
+}
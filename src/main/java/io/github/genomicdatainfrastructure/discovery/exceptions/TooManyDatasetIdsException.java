@@ -0,0 +1,14 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.exceptions;
+
+public class TooManyDatasetIdsException extends RuntimeException {
+
+    private static final String MESSAGE = "%d dataset IDs requested, at most %d are allowed";
+
+    public TooManyDatasetIdsException(int requested, int maximum) {
+        super(MESSAGE.formatted(requested, maximum));
+    }
+}
@@ -0,0 +1,14 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.exceptions;
+
+public class UnsupportedFacetGroupException extends RuntimeException {
+
+    private static final String MESSAGE = "Facets of group %s are not supported by this endpoint";
+
+    public UnsupportedFacetGroupException(String facetGroup) {
+        super(MESSAGE.formatted(facetGroup));
+    }
+}
@@ -0,0 +1,36 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.remote.ckan.api;
+
+import io.smallrye.mutiny.Multi;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+
+/**
+ * The package_search operation of ckan.yaml, with the response body left as a stream of bytes. The
+ * generator only returns a {@code Uni} of the whole response, so this client is written by hand.
+ */
+@Path("/api/3/action")
+@RegisterRestClient(configKey = "ckan_yaml")
+public interface CkanStreamingQueryApi {
+
+    @GET
+    @Path("/enhanced_package_search")
+    @Produces(MediaType.APPLICATION_JSON)
+    Multi<byte[]> packageSearch(
+            @QueryParam("q") String q,
+            @QueryParam("fq") String fq,
+            @QueryParam("sort") String sort,
+            @QueryParam("rows") Integer rows,
+            @QueryParam("start") Integer start,
+            @QueryParam("facet.field") String facetField,
+            @HeaderParam("Authorization") String authorization
+    );
+}
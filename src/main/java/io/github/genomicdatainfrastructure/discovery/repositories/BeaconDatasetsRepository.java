@@ -12,114 +12,261 @@ import static java.util.stream.Collectors.toMap;
 import static io.github.genomicdatainfrastructure.discovery.utils.PackagesSearchResponseMapper.CKAN_FACET_GROUP;
 import static io.github.genomicdatainfrastructure.discovery.services.BeaconFilteringTermsService.BEACON_FACET_GROUP;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.genomicdatainfrastructure.discovery.model.*;
-import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
 import io.github.genomicdatainfrastructure.discovery.services.*;
+import io.github.genomicdatainfrastructure.discovery.utils.AccessTokens;
+import io.github.genomicdatainfrastructure.discovery.utils.AsyncCaches;
 import io.github.genomicdatainfrastructure.discovery.utils.BeaconIndividualsRequestMapper;
-import io.github.genomicdatainfrastructure.discovery.utils.CkanFacetsQueryBuilder;
-import io.github.genomicdatainfrastructure.discovery.utils.PackagesSearchResponseMapper;
+import io.github.genomicdatainfrastructure.discovery.utils.Instrumentation;
+import io.github.genomicdatainfrastructure.discovery.utils.RequestCoalescer;
+import io.github.genomicdatainfrastructure.discovery.utils.ServerTiming;
+import io.github.genomicdatainfrastructure.discovery.utils.Tracing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Tracer;
 import io.quarkus.arc.lookup.LookupIfProperty;
-import lombok.extern.java.Log;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import org.apache.commons.lang3.ObjectUtils;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import io.github.genomicdatainfrastructure.discovery.remote.beacon.api.BeaconQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsRequest;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsRequestQueryFilter;
 import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsResponse;
 import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsResponseContent;
 import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconResultSet;
-import io.github.genomicdatainfrastructure.discovery.remote.keycloak.api.KeycloakQueryApi;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.ws.rs.WebApplicationException;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Objects;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.logging.Level;
+import java.util.Map;
 
-@Log
 @LookupIfProperty(name = "sources.beacon", stringValue = "true")
 @ApplicationScoped
 public class BeaconDatasetsRepository implements DatasetsRepository {
 
-    private static final String SELECTED_FACETS = "[\"access_rights\",\"theme\",\"tags\",\"spatial_uri\",\"organization\",\"publisher_name\",\"res_format\"]";
-    private final CkanQueryApi ckanQueryApi;
-    private static final Set<Integer> SKIP_BEACON_QUERY_STATUS = Set.of(400, 401, 403);
-    private static final String BEACON_ACCESS_TOKEN_INFO = "Skipping beacon search, user is not authorized or the token is invalid.";
-    private static final String BEARER_PATTERN = "Bearer %s";
+    private final CkanSearchService ckanSearchService;
     private static final String BEACON_DATASET_TYPE = "dataset";
     private static final String CKAN_IDENTIFIER_FIELD = "identifier";
+    private static final String BEACON_INDIVIDUALS_CACHE = "beacon-individuals";
+    public static final AttributeKey<Long> RESULT_SETS = AttributeKey.longKey(
+            "discovery.search.result_sets");
     private final BeaconQueryApi beaconQueryApi;
-    private final String beaconIdpAlias;
-    private final KeycloakQueryApi keycloakQueryApi;
+    private final BeaconAuthorizationService beaconAuthorizationService;
     private final BeaconFilteringTermsService beaconFilteringTermsService;
+    private final BeaconCallGuard beaconCallGuard;
+    private final MeterRegistry meterRegistry;
+    private final Tracer tracer;
+    private final AsyncCache<IndividualsKey, List<BeaconResultSet>> individuals;
+    private final RequestCoalescer<List<Object>, BeaconIndividualsResponse> individualsRequests = new RequestCoalescer<>();
 
     @Inject
     public BeaconDatasetsRepository(
-            @RestClient CkanQueryApi ckanQueryApi,
+            CkanSearchService ckanSearchService,
             @RestClient BeaconQueryApi beaconQueryApi,
-            @ConfigProperty(name = "quarkus.rest-client.keycloak_yaml.beacon_idp_alias") String beaconIdpAlias,
-            @RestClient KeycloakQueryApi keycloakQueryApi,
-            BeaconFilteringTermsService beaconFilteringTermsService
+            BeaconAuthorizationService beaconAuthorizationService,
+            BeaconFilteringTermsService beaconFilteringTermsService,
+            BeaconCallGuard beaconCallGuard,
+            @ConfigProperty(name = "beacon.individuals-cache.maximum-size") long maximumSize,
+            @ConfigProperty(name = "beacon.individuals-cache.expire-after-write") Duration expireAfterWrite,
+            MeterRegistry meterRegistry,
+            Tracer tracer
     ) {
-        this.ckanQueryApi = ckanQueryApi;
+        this.ckanSearchService = ckanSearchService;
         this.beaconQueryApi = beaconQueryApi;
-        this.beaconIdpAlias = beaconIdpAlias;
-        this.keycloakQueryApi = keycloakQueryApi;
+        this.beaconAuthorizationService = beaconAuthorizationService;
         this.beaconFilteringTermsService = beaconFilteringTermsService;
+        this.beaconCallGuard = beaconCallGuard;
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+        this.individuals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, individuals, BEACON_INDIVIDUALS_CACHE);
     }
 
     @Override
-    public DatasetsSearchResponse search(DatasetSearchQuery query, String accessToken) {
-        var beaconAuthorization = retrieveBeaconAuthorization(accessToken);
+    public Uni<DatasetsSearchResponse> search(DatasetSearchQuery query, String accessToken) {
+        return retrieveBeaconAuthorization(accessToken)
+                .chain(beaconAuthorization -> beaconAuthorization == null
+                        ? searchOnCkan(query, accessToken)
+                        : searchWithBeacon(query, accessToken, beaconAuthorization));
+    }
 
-        if (beaconAuthorization == null) {
-            return searchCkan(query, accessToken);
-        }
+    @Override
+    public Multi<SearchedDataset> export(DatasetSearchQuery query, String accessToken) {
+        return retrieveBeaconAuthorization(accessToken)
+                .onItem()
+                .transformToMulti(beaconAuthorization -> beaconAuthorization == null
+                        ? ckanSearchService.export(query, accessToken)
+                        : exportWithBeacon(query, accessToken, beaconAuthorization));
+    }
 
-        var resultSets = queryOnBeaconIfThereAreBeaconFilters(beaconAuthorization, query);
+    private Multi<SearchedDataset> exportWithBeacon(
+            DatasetSearchQuery query,
+            String accessToken,
+            String beaconAuthorization
+    ) {
+        return queryOnBeaconIfThereAreBeaconFilters(accessToken, beaconAuthorization, query)
+                .onItem()
+                .transformToMulti(resultSets -> {
+                    if (thereIsAtLeastOneBeaconFilter(query) && resultSets.isEmpty()) {
+                        return Multi.createFrom().empty();
+                    }
+
+                    var recordCounts = recordCounts(resultSets);
+                    return ckanSearchService.export(enhanceQueryFacets(query, resultSets),
+                            accessToken)
+                            .map(it -> it.toBuilder()
+                                    .recordsCount(recordCounts.get(it.getIdentifier()))
+                                    .build());
+                });
+    }
 
-        var datasetsSearchResponse = queryOnCkanIfThereIsNoBeaconFilterOrResultsetsIsNotEmpty(
-                accessToken,
-                query,
-                resultSets
+    private Uni<DatasetsSearchResponse> searchWithBeacon(
+            DatasetSearchQuery query,
+            String accessToken,
+            String beaconAuthorization
+    ) {
+        var filteringTerms = Instrumentation.stage(meterRegistry, "beacon_filtering_terms",
+                () -> beaconFilteringTermsService.listFilteringTerms(beaconAuthorization))
+                .onFailure(BeaconCallGuard::isUnavailable)
+                .recoverWithNull();
+
+        var resultSets = queryOnBeaconIfThereAreBeaconFilters(accessToken, beaconAuthorization,
+                query)
+                .onFailure(BeaconCallGuard::isUnavailable)
+                .recoverWithNull()
+                .memoize()
+                .indefinitely();
+
+        var datasetsSearchResponse = resultSets.chain(
+                it -> it == null
+                        ? searchOnCkan(query, accessToken)
+                        : queryOnCkanIfThereIsNoBeaconFilterOrResultsetsIsNotEmpty(
+                                accessToken,
+                                query,
+                                it
+                        )
         );
+        if (thereIsAtLeastOneBeaconFilter(query)) {
+            datasetsSearchResponse = Uni.combine()
+                    .all()
+                    .unis(datasetsSearchResponse, searchFacetsOnCkan(query, accessToken))
+                    .with(BeaconDatasetsRepository::withFacetGroups);
+        }
 
-        return enhanceDatasetsResponse(beaconAuthorization, datasetsSearchResponse, resultSets);
+        return Uni.combine()
+                .all()
+                .unis(datasetsSearchResponse, resultSets, filteringTerms)
+                .with((response, datasetResultSets, beaconFacetGroup) -> Instrumentation.mapping(
+                        meterRegistry,
+                        "beacon_datasets_response",
+                        () -> enhanceDatasetsResponse(response, datasetResultSets,
+                                beaconFacetGroup)
+                ));
     }
 
-    private String retrieveBeaconAuthorization(String accessToken) {
-        if (accessToken == null) {
-            return null;
-        }
+    private Uni<String> retrieveBeaconAuthorization(String accessToken) {
+        return Instrumentation.stage(meterRegistry, "beacon_authorization",
+                () -> beaconAuthorizationService.retrieveBeaconAuthorization(accessToken));
+    }
+
+    private Uni<DatasetsSearchResponse> searchOnCkan(DatasetSearchQuery query,
+            String ckanAuthorization) {
+        return Instrumentation.stage(meterRegistry, "ckan_search",
+                () -> ckanSearchService.search(query, ckanAuthorization));
+    }
 
-        var keycloakAuthorization = BEARER_PATTERN.formatted(accessToken);
-        try {
-            var response = keycloakQueryApi.retriveIdpTokens(beaconIdpAlias, keycloakAuthorization);
-            return BEARER_PATTERN.formatted(response.getAccessToken());
-        } catch (WebApplicationException exception) {
-            if (SKIP_BEACON_QUERY_STATUS.contains(exception.getResponse().getStatus())) {
-                log.log(Level.INFO, BEACON_ACCESS_TOKEN_INFO);
-                log.log(Level.WARNING, exception, exception::getMessage);
-                return null;
-            }
-            throw exception;
+    private Uni<DatasetsSearchResponse> searchFacetsOnCkan(DatasetSearchQuery query,
+            String ckanAuthorization) {
+        return Instrumentation.stage(meterRegistry, "ckan_facet_search",
+                () -> ckanSearchService.search(query.toBuilder()
+                        .start(0)
+                        .rows(0)
+                        .build(), ckanAuthorization));
+    }
+
+    private static DatasetsSearchResponse withFacetGroups(
+            DatasetsSearchResponse datasetsSearchResponse,
+            DatasetsSearchResponse facetsSearchResponse
+    ) {
+        // Beacon filters without matching datasets skip CKAN, so no CKAN facets are shown
+        if (datasetsSearchResponse.getFacetGroups() == null) {
+            return datasetsSearchResponse;
         }
+        return datasetsSearchResponse.toBuilder()
+                .facetGroups(facetsSearchResponse.getFacetGroups())
+                .build();
     }
 
-    private List<BeaconResultSet> queryOnBeaconIfThereAreBeaconFilters(
+    private Uni<List<BeaconResultSet>> queryOnBeaconIfThereAreBeaconFilters(
+            String accessToken,
             String beaconAuthorization,
             DatasetSearchQuery query
     ) {
         var beaconQuery = BeaconIndividualsRequestMapper.from(query);
         if (beaconQuery.getQuery().getFilters().isEmpty()) {
-            return List.of();
+            return Uni.createFrom().item(List.of());
         }
 
-        var response = beaconQueryApi.listIndividuals(beaconAuthorization, beaconQuery);
+        var key = new IndividualsKey(
+                user(accessToken),
+                beaconQuery.getQuery()
+                        .getFilters()
+                        .stream()
+                        .map(BeaconIndividualsRequestQueryFilter::getId)
+                        .distinct()
+                        .sorted()
+                        .toList()
+        );
+        return Uni.createFrom().completionStage(() -> {
+            ServerTiming.cache(BEACON_INDIVIDUALS_CACHE, () -> individuals.asMap()
+                    .containsKey(key));
+            return AsyncCaches.get(individuals, key, () -> queryOnBeacon(beaconAuthorization,
+                    beaconQuery).subscribeAsCompletionStage());
+        });
+    }
+
+    private Uni<List<BeaconResultSet>> queryOnBeacon(
+            String beaconAuthorization,
+            BeaconIndividualsRequest beaconQuery
+    ) {
+        return Tracing.span(
+                tracer,
+                "beacon.individuals",
+                Attributes.of(SearchDatasetsService.BEACON_FILTERS, (long) beaconQuery.getQuery()
+                        .getFilters().size()),
+                resultSets -> Attributes.of(RESULT_SETS, (long) resultSets.size()),
+                () -> Instrumentation.stage(meterRegistry, "beacon_individuals",
+                        () -> individualsRequests.execute(
+                                List.of(beaconAuthorization, beaconQuery),
+                                () -> beaconCallGuard.guard("list_individuals",
+                                        () -> Instrumentation.upstream(meterRegistry, "beacon",
+                                                "list_individuals",
+                                                () -> beaconQueryApi.listIndividuals(
+                                                        beaconAuthorization, beaconQuery)))
+                        ).map(this::nonEmptyDatasetResultSets))
+        );
+    }
 
+    private static String user(String accessToken) {
+        var subject = AccessTokens.subject(accessToken);
+        return AccessTokens.isKnownSubject(subject) ? subject : AccessTokens.cacheKey(accessToken);
+    }
+
+    private List<BeaconResultSet> nonEmptyDatasetResultSets(BeaconIndividualsResponse response) {
         var nonNullResultSets = ofNullable(response)
                 .map(BeaconIndividualsResponse::getResponse)
                 .map(BeaconIndividualsResponseContent::getResultSets)
@@ -134,23 +281,31 @@ public class BeaconDatasetsRepository implements DatasetsRepository {
                 .toList();
     }
 
-    private DatasetsSearchResponse queryOnCkanIfThereIsNoBeaconFilterOrResultsetsIsNotEmpty(
+    private Uni<DatasetsSearchResponse> queryOnCkanIfThereIsNoBeaconFilterOrResultsetsIsNotEmpty(
             String ckanAuthorization,
             DatasetSearchQuery query,
             List<BeaconResultSet> resultSets
     ) {
-        var nonNullFacets = ofNullable(query.getFacets()).orElseGet(List::of);
-        var thereIsAtLeastOneBeaconFilter = nonNullFacets.stream()
-                .anyMatch(it -> BEACON_FACET_GROUP.equals(it.getFacetGroup()));
-
-        if (thereIsAtLeastOneBeaconFilter && resultSets.isEmpty()) {
-            return DatasetsSearchResponse.builder()
+        if (thereIsAtLeastOneBeaconFilter(query) && resultSets.isEmpty()) {
+            return Uni.createFrom().item(DatasetsSearchResponse.builder()
                     .count(0)
-                    .build();
+                    .build());
         }
 
         var enhancedQuery = enhanceQueryFacets(query, resultSets);
-        return searchCkan(enhancedQuery, ckanAuthorization);
+        if (thereIsAtLeastOneBeaconFilter(query)) {
+            // The facets come from the unconstrained search in searchFacetsOnCkan
+            return Instrumentation.stage(meterRegistry, "ckan_search",
+                    () -> ckanSearchService.searchPage(enhancedQuery, ckanAuthorization));
+        }
+        return searchOnCkan(enhancedQuery, ckanAuthorization);
+    }
+
+    private boolean thereIsAtLeastOneBeaconFilter(DatasetSearchQuery query) {
+        return ofNullable(query.getFacets())
+                .orElseGet(List::of)
+                .stream()
+                .anyMatch(it -> BEACON_FACET_GROUP.equals(it.getFacetGroup()));
     }
 
     private DatasetSearchQuery enhanceQueryFacets(
@@ -176,30 +331,31 @@ public class BeaconDatasetsRepository implements DatasetsRepository {
     }
 
     private DatasetsSearchResponse enhanceDatasetsResponse(
-            String beaconAuthorization,
             DatasetsSearchResponse datasetsSearchResponse,
-            List<BeaconResultSet> resultSets
+            List<BeaconResultSet> resultSets,
+            FacetGroup beaconFacetGroup
     ) {
+        var beaconUnavailable = resultSets == null || beaconFacetGroup == null;
+
         var facetGroupCount = new HashMap<String, Integer>();
-        facetGroupCount.put(BEACON_FACET_GROUP, resultSets.size());
+        if (resultSets != null) {
+            facetGroupCount.put(BEACON_FACET_GROUP, resultSets.size());
+        }
         if (isNotEmpty(datasetsSearchResponse.getFacetGroupCount())) {
             facetGroupCount.putAll(datasetsSearchResponse.getFacetGroupCount());
         }
 
         var facetGroups = new ArrayList<FacetGroup>();
-        facetGroups.add(beaconFilteringTermsService.listFilteringTerms(beaconAuthorization));
+        if (beaconFacetGroup != null) {
+            facetGroups.add(beaconFacetGroup);
+        }
         if (isNotEmpty(datasetsSearchResponse.getFacetGroups())) {
             facetGroups.addAll(datasetsSearchResponse.getFacetGroups());
         }
 
         var results = List.<SearchedDataset>of();
         if (isNotEmpty(datasetsSearchResponse.getResults())) {
-            var recordCounts = resultSets.stream()
-                    .collect(toMap(
-                            BeaconResultSet::getId,
-                            BeaconResultSet::getResultsCount
-                    ));
-
+            var recordCounts = recordCounts(ofNullable(resultSets).orElseGet(List::of));
             results = datasetsSearchResponse.getResults()
                     .stream()
                     .map(it -> it.toBuilder()
@@ -212,22 +368,18 @@ public class BeaconDatasetsRepository implements DatasetsRepository {
                 .facetGroupCount(facetGroupCount)
                 .facetGroups(facetGroups)
                 .results(results)
+                .beaconUnavailable(beaconUnavailable ? true : null)
                 .build();
     }
 
-    private DatasetsSearchResponse searchCkan(DatasetSearchQuery query, String ckanAuthorization) {
-        var facetsQuery = CkanFacetsQueryBuilder.buildFacetQuery(query);
-
-        var response = ckanQueryApi.packageSearch(
-                query.getQuery(),
-                facetsQuery,
-                query.getSort(),
-                query.getRows(),
-                query.getStart(),
-                SELECTED_FACETS,
-                ckanAuthorization
-        );
+    private Map<String, Integer> recordCounts(List<BeaconResultSet> resultSets) {
+        return resultSets.stream()
+                .collect(toMap(
+                        BeaconResultSet::getId,
+                        BeaconResultSet::getResultsCount
+                ));
+    }
 
-        return PackagesSearchResponseMapper.from(response);
+    private record IndividualsKey(String user, List<String> filters) {
     }
 }
@@ -6,42 +6,34 @@ package io.github.genomicdatainfrastructure.discovery.repositories;
 
 import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
 import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
-import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
-import io.github.genomicdatainfrastructure.discovery.utils.CkanFacetsQueryBuilder;
-import io.github.genomicdatainfrastructure.discovery.utils.PackagesSearchResponseMapper;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
+import io.github.genomicdatainfrastructure.discovery.services.CkanSearchService;
 import io.quarkus.arc.lookup.LookupIfProperty;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
 
 @LookupIfProperty(name = "sources.ckan", stringValue = "true")
 @ApplicationScoped
 public class CkanDatasetsRepository implements DatasetsRepository {
 
-    private static final String SELECTED_FACETS = "[\"access_rights\",\"theme\",\"tags\",\"spatial_uri\",\"organization\",\"publisher_name\",\"res_format\"]";
-    private final CkanQueryApi ckanQueryApi;
+    private final CkanSearchService ckanSearchService;
 
     @Inject
     public CkanDatasetsRepository(
-            @RestClient CkanQueryApi ckanQueryApi
+            CkanSearchService ckanSearchService
     ) {
-        this.ckanQueryApi = ckanQueryApi;
+        this.ckanSearchService = ckanSearchService;
     }
 
     @Override
-    public DatasetsSearchResponse search(DatasetSearchQuery query, String accessToken) {
-        var facetsQuery = CkanFacetsQueryBuilder.buildFacetQuery(query);
-
-        var response = ckanQueryApi.packageSearch(
-                query.getQuery(),
-                facetsQuery,
-                query.getSort(),
-                query.getRows(),
-                query.getStart(),
-                SELECTED_FACETS,
-                accessToken
-        );
+    public Uni<DatasetsSearchResponse> search(DatasetSearchQuery query, String accessToken) {
+        return ckanSearchService.search(query, accessToken);
+    }
 
-        return PackagesSearchResponseMapper.from(response);
+    @Override
+    public Multi<SearchedDataset> export(DatasetSearchQuery query, String accessToken) {
+        return ckanSearchService.export(query, accessToken);
     }
 }
@@ -6,8 +6,13 @@ package io.github.genomicdatainfrastructure.discovery.repositories;
 
 import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
 import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 
 public interface DatasetsRepository {
 
-    DatasetsSearchResponse search(DatasetSearchQuery query, String accessToken);
+    Uni<DatasetsSearchResponse> search(DatasetSearchQuery query, String accessToken);
+
+    Multi<SearchedDataset> export(DatasetSearchQuery query, String accessToken);
 }
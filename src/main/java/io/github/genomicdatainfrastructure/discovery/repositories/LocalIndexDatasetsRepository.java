@@ -0,0 +1,49 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.repositories;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
+import io.github.genomicdatainfrastructure.discovery.services.CkanSearchService;
+import io.github.genomicdatainfrastructure.discovery.services.LocalDatasetIndexService;
+import io.quarkus.arc.lookup.LookupIfProperty;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+@LookupIfProperty(name = "sources.local-index", stringValue = "true")
+@ApplicationScoped
+public class LocalIndexDatasetsRepository implements DatasetsRepository {
+
+    private final LocalDatasetIndexService localDatasetIndexService;
+    private final CkanSearchService ckanSearchService;
+
+    @Inject
+    public LocalIndexDatasetsRepository(
+            LocalDatasetIndexService localDatasetIndexService,
+            CkanSearchService ckanSearchService
+    ) {
+        this.localDatasetIndexService = localDatasetIndexService;
+        this.ckanSearchService = ckanSearchService;
+    }
+
+    @Override
+    public Uni<DatasetsSearchResponse> search(DatasetSearchQuery query, String accessToken) {
+        if (accessToken == null && localDatasetIndexService.canAnswer(query)) {
+            return localDatasetIndexService.search(query);
+        }
+        return ckanSearchService.search(query, accessToken);
+    }
+
+    @Override
+    public Multi<SearchedDataset> export(DatasetSearchQuery query, String accessToken) {
+        if (accessToken == null && localDatasetIndexService.canAnswer(query)) {
+            return localDatasetIndexService.export(query);
+        }
+        return ckanSearchService.export(query, accessToken);
+    }
+}
@@ -0,0 +1,145 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.api.KeycloakQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.model.KeycloakTokenResponse;
+import io.github.genomicdatainfrastructure.discovery.utils.AccessTokens;
+import io.github.genomicdatainfrastructure.discovery.utils.AsyncCaches;
+import io.github.genomicdatainfrastructure.discovery.utils.Instrumentation;
+import io.github.genomicdatainfrastructure.discovery.utils.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import lombok.extern.java.Log;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.logging.Level;
+
+@Log
+@ApplicationScoped
+public class BeaconAuthorizationService {
+
+    private static final Set<Integer> SKIP_BEACON_QUERY_STATUS = Set.of(400, 401, 403);
+    private static final String BEACON_ACCESS_TOKEN_INFO = "Skipping beacon search, user is not authorized or the token is invalid.";
+    private static final String BEARER_PATTERN = "Bearer %s";
+    private static final String BEACON_TOKENS_CACHE = "keycloak-beacon-tokens";
+
+    private final KeycloakQueryApi keycloakQueryApi;
+    private final MeterRegistry meterRegistry;
+    private final String beaconIdpAlias;
+    private final Duration refreshMargin;
+    private final Duration defaultTimeToLive;
+    private final Duration unauthorizedTimeToLive;
+    private final AsyncCache<String, BeaconAuthorization> authorizations;
+
+    @Inject
+    public BeaconAuthorizationService(
+            @RestClient KeycloakQueryApi keycloakQueryApi,
+            @ConfigProperty(name = "quarkus.rest-client.keycloak_yaml.beacon_idp_alias") String beaconIdpAlias,
+            @ConfigProperty(name = "keycloak.token-cache.maximum-size") long maximumSize,
+            @ConfigProperty(name = "keycloak.token-cache.refresh-margin") Duration refreshMargin,
+            @ConfigProperty(name = "keycloak.token-cache.default-ttl") Duration defaultTimeToLive,
+            @ConfigProperty(name = "keycloak.token-cache.unauthorized-ttl") Duration unauthorizedTimeToLive,
+            MeterRegistry meterRegistry
+    ) {
+        this.keycloakQueryApi = keycloakQueryApi;
+        this.meterRegistry = meterRegistry;
+        this.beaconIdpAlias = beaconIdpAlias;
+        this.refreshMargin = refreshMargin;
+        this.defaultTimeToLive = defaultTimeToLive;
+        this.unauthorizedTimeToLive = unauthorizedTimeToLive;
+        this.authorizations = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new BeaconAuthorizationExpiry())
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, authorizations, BEACON_TOKENS_CACHE);
+    }
+
+    public Uni<String> retrieveBeaconAuthorization(String accessToken) {
+        if (accessToken == null) {
+            return Uni.createFrom().nullItem();
+        }
+
+        var cacheKey = AccessTokens.cacheKey(accessToken);
+        return Uni.createFrom()
+                .completionStage(() -> {
+                    ServerTiming.cache(BEACON_TOKENS_CACHE, () -> authorizations.asMap()
+                            .containsKey(cacheKey));
+                    return AsyncCaches.get(
+                            authorizations,
+                            cacheKey,
+                            () -> exchangeToken(accessToken).subscribeAsCompletionStage()
+                    );
+                })
+                .map(BeaconAuthorization::authorization);
+    }
+
+    private Uni<BeaconAuthorization> exchangeToken(String accessToken) {
+        var keycloakAuthorization = BEARER_PATTERN.formatted(accessToken);
+        return Instrumentation.upstream(meterRegistry, "keycloak", "retrive_idp_tokens",
+                () -> keycloakQueryApi.retriveIdpTokens(beaconIdpAlias, keycloakAuthorization))
+                .map(response -> new BeaconAuthorization(
+                        BEARER_PATTERN.formatted(response.getAccessToken()),
+                        timeToLive(response)
+                ))
+                .onFailure(this::isUnauthorized)
+                .recoverWithItem(exception -> {
+                    log.log(Level.INFO, BEACON_ACCESS_TOKEN_INFO);
+                    log.log(Level.WARNING, exception, exception::getMessage);
+                    return new BeaconAuthorization(null, unauthorizedTimeToLive);
+                });
+    }
+
+    private boolean isUnauthorized(Throwable failure) {
+        return failure instanceof WebApplicationException exception
+                && SKIP_BEACON_QUERY_STATUS.contains(exception.getResponse().getStatus());
+    }
+
+    private Duration timeToLive(KeycloakTokenResponse response) {
+        if (response.getExpiresIn() == null) {
+            return defaultTimeToLive;
+        }
+
+        var timeToLive = Duration.ofSeconds(response.getExpiresIn()).minus(refreshMargin);
+        return timeToLive.isNegative() ? Duration.ZERO : timeToLive;
+    }
+
+    private record BeaconAuthorization(String authorization, Duration timeToLive) {
+    }
+
+    private static class BeaconAuthorizationExpiry implements
+            Expiry<String, BeaconAuthorization> {
+
+        @Override
+        public long expireAfterCreate(String key, BeaconAuthorization value, long currentTime) {
+            return value.timeToLive().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(
+                String key, BeaconAuthorization value, long currentTime, long currentDuration
+        ) {
+            return value.timeToLive().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(
+                String key, BeaconAuthorization value, long currentTime, long currentDuration
+        ) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.github.genomicdatainfrastructure.discovery.exceptions.CircuitBreakerOpenException;
+import io.github.genomicdatainfrastructure.discovery.utils.AdaptiveTimeout;
+import io.github.genomicdatainfrastructure.discovery.utils.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.TimeoutException;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+@ApplicationScoped
+public class BeaconCallGuard {
+
+    private static final String BEACON = "beacon";
+    private static final int LATENCY_WINDOW = 100;
+
+    private final CircuitBreaker circuitBreaker;
+    private final Supplier<AdaptiveTimeout> adaptiveTimeouts;
+    private final Map<String, AdaptiveTimeout> timeouts = new ConcurrentHashMap<>();
+
+    @Inject
+    public BeaconCallGuard(
+            @ConfigProperty(name = "beacon.circuit-breaker.window-size") int windowSize,
+            @ConfigProperty(name = "beacon.circuit-breaker.minimum-calls") int minimumCalls,
+            @ConfigProperty(name = "beacon.circuit-breaker.failure-ratio") double failureRatio,
+            @ConfigProperty(name = "beacon.circuit-breaker.open-delay") Duration openDelay,
+            @ConfigProperty(name = "beacon.adaptive-timeout.percentile") double percentile,
+            @ConfigProperty(name = "beacon.adaptive-timeout.multiplier") double multiplier,
+            @ConfigProperty(name = "beacon.adaptive-timeout.minimum") Duration minimumTimeout,
+            @ConfigProperty(name = "beacon.adaptive-timeout.maximum") Duration maximumTimeout,
+            MeterRegistry meterRegistry
+    ) {
+        this(windowSize, minimumCalls, failureRatio, openDelay, percentile, multiplier,
+                minimumTimeout, maximumTimeout, meterRegistry, Clock.systemUTC());
+    }
+
+    BeaconCallGuard(
+            int windowSize,
+            int minimumCalls,
+            double failureRatio,
+            Duration openDelay,
+            double percentile,
+            double multiplier,
+            Duration minimumTimeout,
+            Duration maximumTimeout,
+            MeterRegistry meterRegistry,
+            Clock clock
+    ) {
+        this.circuitBreaker = new CircuitBreaker(BEACON, windowSize, minimumCalls, failureRatio,
+                openDelay, BeaconCallGuard::isServerFailure, clock);
+        this.adaptiveTimeouts = () -> new AdaptiveTimeout(percentile, multiplier, minimumTimeout,
+                maximumTimeout, LATENCY_WINDOW, minimumCalls);
+        Gauge.builder("discovery.circuit.breaker.open", circuitBreaker,
+                it -> it.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .tag("name", BEACON)
+                .register(meterRegistry);
+    }
+
+    public <T> Uni<T> guard(String operation, Supplier<Uni<T>> call) {
+        var timeout = timeouts.computeIfAbsent(operation, ignored -> adaptiveTimeouts.get());
+        return circuitBreaker.execute(() -> timeout.execute(call));
+    }
+
+    public static boolean isUnavailable(Throwable failure) {
+        return failure instanceof CircuitBreakerOpenException || isServerFailure(failure);
+    }
+
+    CircuitBreaker.State state() {
+        return circuitBreaker.state();
+    }
+
+    Duration timeout(String operation) {
+        return timeouts.get(operation).timeout();
+    }
+
+    private static boolean isServerFailure(Throwable failure) {
+        if (failure instanceof TimeoutException || failure instanceof ProcessingException) {
+            return true;
+        }
+        if (failure instanceof IOException) {
+            return !(failure instanceof JsonProcessingException);
+        }
+        return failure instanceof WebApplicationException exception
+                && exception.getResponse() != null
+                && exception.getResponse().getStatus() >= 500;
+    }
+}
@@ -0,0 +1,41 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+
+@ApplicationScoped
+public class BeaconFilteringTermsRefresher {
+
+    private final BeaconFilteringTermsService beaconFilteringTermsService;
+    private final boolean beaconEnabled;
+
+    public BeaconFilteringTermsRefresher(
+            BeaconFilteringTermsService beaconFilteringTermsService,
+            @ConfigProperty(name = "sources.beacon") boolean beaconEnabled
+    ) {
+        this.beaconFilteringTermsService = beaconFilteringTermsService;
+        this.beaconEnabled = beaconEnabled;
+    }
+
+    void prewarm(@Observes StartupEvent event) {
+        if (beaconEnabled) {
+            beaconFilteringTermsService.prewarm();
+        }
+    }
+
+    @Scheduled(every = "${beacon.filtering-terms.refresh-interval}", delayed = "${beacon.filtering-terms.refresh-interval}", concurrentExecution = SKIP)
+    void refresh() {
+        if (beaconEnabled) {
+            beaconFilteringTermsService.refreshPublicFilteringTerms();
+        }
+    }
+}
@@ -4,122 +4,176 @@
 
 package io.github.genomicdatainfrastructure.discovery.services;
 
-import static java.util.Optional.ofNullable;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.mapping;
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.Collectors.toList;
-import static org.apache.commons.lang3.StringUtils.isNotBlank;
-import static org.apache.commons.lang3.ObjectUtils.isNotEmpty;
-
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
-import io.github.genomicdatainfrastructure.discovery.model.Facet;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
-import io.github.genomicdatainfrastructure.discovery.model.ValueLabel;
 import io.github.genomicdatainfrastructure.discovery.remote.beacon.api.BeaconQueryApi;
-import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconFilteringTerm;
-import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconFilteringTermsResponse;
-import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconFilteringTermsResponseContent;
-import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconResource;
-import io.quarkus.cache.CacheResult;
+import io.github.genomicdatainfrastructure.discovery.utils.AccessTokens;
+import io.github.genomicdatainfrastructure.discovery.utils.AsyncCaches;
+import io.github.genomicdatainfrastructure.discovery.utils.BeaconFilteringTermsMapper;
+import io.github.genomicdatainfrastructure.discovery.utils.Hashes;
+import io.github.genomicdatainfrastructure.discovery.utils.Instrumentation;
+import io.github.genomicdatainfrastructure.discovery.utils.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-
+import lombok.extern.java.Log;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+@Log
 @ApplicationScoped
 public class BeaconFilteringTermsService {
 
-    private static final String DEFAULT_TYPE = "ontology";
-
     public static final String BEACON_FACET_GROUP = "beacon";
 
-    private static final String DEFAULT_SCOPE = "individual";
+    private static final String PUBLIC_PERMISSION_SCOPE = "public";
+
+    private static final String CLAIM_PERMISSION_SCOPE_PREFIX = "claim:";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String FILTERING_TERMS_CACHE = "beacon-filtering-terms";
 
     private final BeaconQueryApi beaconQueryApi;
 
+    private final BeaconCallGuard beaconCallGuard;
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean publicFilteringTerms;
+
+    private final Optional<String> scopeClaim;
+
+    private final Duration refreshInterval;
+
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final AsyncCache<String, LoadedFacetGroup> facetGroups;
+
     public BeaconFilteringTermsService(
-            @RestClient BeaconQueryApi beaconQueryApi
+            @RestClient BeaconQueryApi beaconQueryApi,
+            BeaconCallGuard beaconCallGuard,
+            @ConfigProperty(name = "beacon.filtering-terms.public") boolean publicFilteringTerms,
+            @ConfigProperty(name = "beacon.filtering-terms.scope-claim") Optional<String> scopeClaim,
+            @ConfigProperty(name = "beacon.filtering-terms.maximum-size") long maximumSize,
+            @ConfigProperty(name = "beacon.filtering-terms.expire-after-access") Duration expireAfterAccess,
+            @ConfigProperty(name = "beacon.filtering-terms.refresh-interval") Duration refreshInterval,
+            MeterRegistry meterRegistry
     ) {
         this.beaconQueryApi = beaconQueryApi;
+        this.beaconCallGuard = beaconCallGuard;
+        this.meterRegistry = meterRegistry;
+        this.publicFilteringTerms = publicFilteringTerms;
+        this.scopeClaim = scopeClaim;
+        this.refreshInterval = refreshInterval;
+        this.facetGroups = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterAccess)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, facetGroups, FILTERING_TERMS_CACHE);
     }
 
-    @CacheResult(cacheName = "beacon-facet-group-cache")
-    public FacetGroup listFilteringTerms(String authorization) {
-        var filteringTermsResponse = retreiveNonNullFilteringTermsResponse(authorization);
-
-        var valuesGroupedByFacetId = groupValuesByFacetId(filteringTermsResponse);
+    public Uni<FacetGroup> listFilteringTerms(String authorization) {
+        return Uni.createFrom().completionStage(() -> {
+            var scope = permissionScope(authorization);
+            var scopeAuthorization = PUBLIC_PERMISSION_SCOPE.equals(scope) ? null : authorization;
+            var cached = facetGroups.asMap().containsKey(scope);
+            ServerTiming.cache(FILTERING_TERMS_CACHE, () -> cached);
+            return AsyncCaches.get(facetGroups, scope, () -> load(scopeAuthorization))
+                    .thenApply(loaded -> {
+                        if (cached && scopeAuthorization != null
+                                && loaded.isOlderThan(refreshInterval)) {
+                            refresh(scope, scopeAuthorization);
+                        }
+                        return loaded.facetGroup();
+                    });
+        });
+    }
 
-        var facetIdsMappedByName = mapFacetNamesByFacetId(filteringTermsResponse);
+    public void prewarm() {
+        if (publicFilteringTerms) {
+            refresh(PUBLIC_PERMISSION_SCOPE, null);
+        }
+    }
 
-        var facets = buildFacets(valuesGroupedByFacetId, facetIdsMappedByName);
+    public Optional<FacetGroup> publicFilteringTerms() {
+        var facetGroup = facetGroups.getIfPresent(PUBLIC_PERMISSION_SCOPE);
+        if (facetGroup == null || !facetGroup.isDone() || facetGroup.isCompletedExceptionally()) {
+            return Optional.empty();
+        }
+        return Optional.of(facetGroup.join().facetGroup());
+    }
 
-        return FacetGroup.builder()
-                .key(BEACON_FACET_GROUP)
-                .label("Beacon")
-                .facets(facets)
-                .build();
+    public void restorePublicFilteringTerms(FacetGroup facetGroup) {
+        facetGroups.put(PUBLIC_PERMISSION_SCOPE, CompletableFuture.completedFuture(
+                new LoadedFacetGroup(facetGroup, System.nanoTime())));
     }
 
-    private BeaconFilteringTermsResponseContent retreiveNonNullFilteringTermsResponse(
-            String authorization
-    ) {
-        var filteringTerms = beaconQueryApi.listFilteringTerms(authorization);
+    public void refreshPublicFilteringTerms() {
+        if (publicFilteringTerms || facetGroups.getIfPresent(PUBLIC_PERMISSION_SCOPE) != null) {
+            refresh(PUBLIC_PERMISSION_SCOPE, null);
+        }
+    }
 
-        return ofNullable(filteringTerms)
-                .map(BeaconFilteringTermsResponse::getResponse)
-                .filter(it -> isNotEmpty(it.getFilteringTerms()))
-                .filter(it -> isNotEmpty(it.getResources()))
-                .orElseGet(BeaconFilteringTermsResponseContent::new);
+    private void refresh(String scope, String authorization) {
+        if (!refreshing.add(scope)) {
+            return;
+        }
+        load(authorization).whenComplete((loaded, failure) -> {
+            refreshing.remove(scope);
+            if (failure != null) {
+                log.log(Level.WARNING, failure,
+                        () -> "Keeping stale Beacon filtering terms of scope %s".formatted(scope));
+            } else {
+                facetGroups.put(scope, CompletableFuture.completedFuture(loaded));
+            }
+        });
     }
 
-    private Map<String, List<ValueLabel>> groupValuesByFacetId(
-            BeaconFilteringTermsResponseContent filteringTermsResponse
-    ) {
-        return filteringTermsResponse.getFilteringTerms().stream()
-                .filter(Objects::nonNull)
-                .filter(it -> isNotBlank(it.getLabel()))
-                .filter(it -> isNotBlank(it.getId()))
-                .filter(it -> it.getId().contains(":"))
-                .filter(it -> DEFAULT_TYPE.equals(it.getType()))
-                .filter(it -> isNotEmpty(it.getScopes()))
-                .filter(it -> it.getScopes().contains(DEFAULT_SCOPE))
-                .collect(groupingBy(
-                        it -> it.getId().split(":")[0].toLowerCase(),
-                        mapping(this::mapFilteringTermToValueLabel, toList())
-                ));
+    private String permissionScope(String authorization) {
+        if (publicFilteringTerms || authorization == null) {
+            return PUBLIC_PERMISSION_SCOPE;
+        }
+
+        var accessToken = authorization.startsWith(BEARER_PREFIX)
+                ? authorization.substring(BEARER_PREFIX.length())
+                : authorization;
+        var sharedScope = scopeClaim.flatMap(claim -> AccessTokens.claim(accessToken, claim));
+        if (sharedScope.isPresent()) {
+            return CLAIM_PERMISSION_SCOPE_PREFIX + Hashes.sha256(sharedScope.get());
+        }
+
+        var subject = AccessTokens.subject(accessToken);
+        return AccessTokens.isKnownSubject(subject) ? subject : Hashes.sha256(accessToken);
     }
 
-    private ValueLabel mapFilteringTermToValueLabel(BeaconFilteringTerm term) {
-        return ValueLabel.builder()
-                .value(term.getId())
-                .label(term.getLabel())
-                .build();
+    private CompletableFuture<LoadedFacetGroup> load(String authorization) {
+        return buildFacetGroup(authorization)
+                .map(facetGroup -> new LoadedFacetGroup(facetGroup, System.nanoTime()))
+                .subscribeAsCompletionStage();
     }
 
-    private Map<String, String> mapFacetNamesByFacetId(
-            BeaconFilteringTermsResponseContent filteringTermsResponse
-    ) {
-        return filteringTermsResponse.getResources().stream()
-                .filter(it -> isNotBlank(it.getId()))
-                .filter(it -> isNotBlank(it.getName()))
-                .collect(toMap(
-                        BeaconResource::getId,
-                        BeaconResource::getName
-                ));
+    private Uni<FacetGroup> buildFacetGroup(String authorization) {
+        return beaconCallGuard.guard("list_filtering_terms",
+                () -> Instrumentation.upstream(meterRegistry, "beacon", "list_filtering_terms",
+                        () -> beaconQueryApi.listFilteringTerms(authorization)))
+                .map(response -> Instrumentation.mapping(meterRegistry, "beacon_filtering_terms",
+                        () -> BeaconFilteringTermsMapper.from(response)));
     }
 
-    private List<Facet> buildFacets(
-            Map<String, List<ValueLabel>> termsGroupedByType,
-            Map<String, String> facetNamesMappedById
-    ) {
-        return termsGroupedByType.entrySet().stream()
-                .filter(entry -> facetNamesMappedById.containsKey(entry.getKey()))
-                .map(entry -> Facet.builder()
-                        .key(entry.getKey())
-                        .label(facetNamesMappedById.get(entry.getKey()))
-                        .values(entry.getValue())
-                        .build())
-                .toList();
+    private record LoadedFacetGroup(FacetGroup facetGroup, long loadedAt) {
+
+        boolean isOlderThan(Duration age) {
+            return System.nanoTime() - loadedAt >= age.toNanos();
+        }
     }
 }
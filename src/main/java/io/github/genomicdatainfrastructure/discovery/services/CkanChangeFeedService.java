@@ -0,0 +1,257 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.github.genomicdatainfrastructure.discovery.utils.Instrumentation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Optional.ofNullable;
+
+@ApplicationScoped
+public class CkanChangeFeedService {
+
+    private static final String FEED_SORT = "metadata_modified desc";
+    private static final String FEED_FACETS = "[]";
+    private static final String MODIFIED_SINCE = "metadata_modified:[%s TO *]";
+    private static final String RECONCILE_FIELDS = "id,name";
+    private static final String RECONCILE_SORT = "id asc";
+    private static final String AFTER_ID = "id:{\"%s\" TO *]";
+    private static final DateTimeFormatter SOLR_DATE_FORMATTER = DateTimeFormatter.ofPattern(
+            "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+
+    private final CkanQueryApi ckanQueryApi;
+    private final Event<DatasetChangeEvent> changes;
+    private final ObjectMapper objectMapper;
+    private final Path stateFile;
+    private final int pageSize;
+    private final MeterRegistry meterRegistry;
+    private State state;
+
+    @Inject
+    public CkanChangeFeedService(
+            @RestClient CkanQueryApi ckanQueryApi,
+            Event<DatasetChangeEvent> changes,
+            ObjectMapper objectMapper,
+            @ConfigProperty(name = "ckan.change-feed.state-file") String stateFile,
+            @ConfigProperty(name = "ckan.change-feed.page-size") int pageSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.ckanQueryApi = ckanQueryApi;
+        this.changes = changes;
+        this.objectMapper = objectMapper;
+        this.stateFile = Path.of(stateFile);
+        this.pageSize = pageSize;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Uni<Integer> poll() {
+        return Uni.createFrom().item(this::state)
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .chain(current -> current.checkpoint() == null
+                        ? latest()
+                                .emitOn(Infrastructure.getDefaultWorkerPool())
+                                .map(this::initialize)
+                        : changedSince(current.checkpoint(), 0, new ArrayList<>())
+                                .emitOn(Infrastructure.getDefaultWorkerPool())
+                                .map(this::applyChanges));
+    }
+
+    public Uni<Integer> reconcile() {
+        return Uni.createFrom().item(() -> Set.copyOf(state().datasets().keySet()))
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .chain(known -> datasets(null, new HashMap<>())
+                        .emitOn(Infrastructure.getDefaultWorkerPool())
+                        .map(current -> applyReconciliation(known, current)));
+    }
+
+    private Uni<List<CkanPackage>> latest() {
+        return Instrumentation.upstream(meterRegistry, "ckan", "package_search",
+                () -> ckanQueryApi.packageSearch(null, null, FEED_SORT, 1, 0, FEED_FACETS, null,
+                        null))
+                .map(CkanChangeFeedService::packages);
+    }
+
+    private Uni<List<CkanPackage>> changedSince(String checkpoint, int start,
+            List<CkanPackage> changed) {
+        return Instrumentation.upstream(meterRegistry, "ckan", "package_search",
+                () -> ckanQueryApi.packageSearch(
+                        null,
+                        MODIFIED_SINCE.formatted(solrDate(checkpoint)),
+                        FEED_SORT,
+                        pageSize,
+                        start,
+                        FEED_FACETS,
+                        null,
+                        null
+                )).chain(response -> {
+                    var packages = packages(response);
+                    changed.addAll(packages);
+                    if (packages.size() < pageSize) {
+                        return Uni.createFrom().item(changed);
+                    }
+                    return changedSince(checkpoint, start + pageSize, changed);
+                });
+    }
+
+    private Uni<Map<String, String>> datasets(String afterId, Map<String, String> datasets) {
+        var fq = afterId != null
+                ? AFTER_ID.formatted(afterId.replace("\\", "\\\\").replace("\"", "\\\""))
+                : null;
+
+        return Instrumentation.upstream(meterRegistry, "ckan", "package_fields_search",
+                () -> ckanQueryApi.packageFieldsSearch(fq, RECONCILE_FIELDS, RECONCILE_SORT,
+                        pageSize, null))
+                .chain(response -> {
+                    var packages = packages(response);
+                    for (var dataset : packages) {
+                        datasets.put(dataset.getId(), dataset.getName());
+                    }
+                    if (packages.size() < pageSize) {
+                        return Uni.createFrom().item(datasets);
+                    }
+                    return datasets(packages.getLast().getId(), datasets);
+                });
+    }
+
+    private synchronized int initialize(List<CkanPackage> latest) {
+        var current = state();
+        if (current.checkpoint() != null || latest.isEmpty()) {
+            return 0;
+        }
+
+        var dataset = latest.getFirst();
+        save(new State(dataset.getMetadataModified(), Set.of(dataset.getId()), current
+                .datasets()));
+        return 0;
+    }
+
+    private synchronized int applyChanges(List<CkanPackage> changed) {
+        var current = state();
+        var checkpoint = current.checkpoint();
+        var checkpointIds = new HashSet<>(current.checkpointIds());
+        var datasets = new HashMap<>(current.datasets());
+        var applied = 0;
+
+        for (var dataset : changed.reversed()) {
+            var modified = dataset.getMetadataModified();
+            if (modified == null || modified.compareTo(checkpoint) < 0
+                    || (modified.equals(current.checkpoint())
+                            && current.checkpointIds().contains(dataset.getId()))) {
+                continue;
+            }
+
+            if (modified.compareTo(checkpoint) > 0) {
+                checkpoint = modified;
+                checkpointIds.clear();
+            }
+            checkpointIds.add(dataset.getId());
+            datasets.put(dataset.getId(), dataset.getName());
+            changes.fire(DatasetChangeEvent.updated(dataset));
+            applied++;
+        }
+
+        save(new State(checkpoint, checkpointIds, datasets));
+        return applied;
+    }
+
+    private synchronized int applyReconciliation(Set<String> known, Map<String, String> current) {
+        var previous = state();
+        var datasets = new HashMap<>(current);
+        var deleted = 0;
+
+        for (var dataset : previous.datasets().entrySet()) {
+            if (current.containsKey(dataset.getKey())) {
+                continue;
+            }
+            if (known.contains(dataset.getKey())) {
+                changes.fire(DatasetChangeEvent.deleted(dataset.getKey(), dataset.getValue()));
+                deleted++;
+            } else {
+                datasets.put(dataset.getKey(), dataset.getValue());
+            }
+        }
+
+        save(new State(previous.checkpoint(), previous.checkpointIds(), datasets));
+        return deleted;
+    }
+
+    private synchronized State state() {
+        if (state == null) {
+            state = load();
+        }
+        return state;
+    }
+
+    private State load() {
+        if (!Files.exists(stateFile)) {
+            return new State(null, Set.of(), Map.of());
+        }
+        try {
+            return objectMapper.readValue(stateFile.toFile(), State.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void save(State next) {
+        try {
+            Files.createDirectories(stateFile.toAbsolutePath().getParent());
+            var temporary = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            objectMapper.writeValue(temporary.toFile(), next);
+            Files.move(temporary, stateFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            state = next;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<CkanPackage> packages(PackagesSearchResponse response) {
+        return ofNullable(response)
+                .map(PackagesSearchResponse::getResult)
+                .map(PackagesSearchResult::getResults)
+                .orElseGet(List::of);
+    }
+
+    private static String solrDate(String metadataModified) {
+        return LocalDateTime.parse(metadataModified)
+                .truncatedTo(ChronoUnit.MILLIS)
+                .format(SOLR_DATE_FORMATTER);
+    }
+
+    record State(
+                 String checkpoint,
+                 Set<String> checkpointIds,
+                 Map<String, String> datasets
+    ) {
+    }
+}
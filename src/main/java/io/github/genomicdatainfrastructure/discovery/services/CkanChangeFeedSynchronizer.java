@@ -0,0 +1,40 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+
+@ApplicationScoped
+public class CkanChangeFeedSynchronizer {
+
+    private final CkanChangeFeedService ckanChangeFeedService;
+    private final boolean changeFeedEnabled;
+
+    public CkanChangeFeedSynchronizer(
+            CkanChangeFeedService ckanChangeFeedService,
+            @ConfigProperty(name = "ckan.change-feed.enabled") boolean changeFeedEnabled
+    ) {
+        this.ckanChangeFeedService = ckanChangeFeedService;
+        this.changeFeedEnabled = changeFeedEnabled;
+    }
+
+    @Scheduled(every = "${ckan.change-feed.poll-interval}", concurrentExecution = SKIP)
+    void poll() {
+        if (changeFeedEnabled) {
+            ckanChangeFeedService.poll().await().indefinitely();
+        }
+    }
+
+    @Scheduled(every = "${ckan.change-feed.reconcile-interval}", concurrentExecution = SKIP)
+    void reconcile() {
+        if (changeFeedEnabled) {
+            ckanChangeFeedService.reconcile().await().indefinitely();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.utils.HedgedRequests;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+@ApplicationScoped
+public class CkanHedging {
+
+    private static final String HEDGED_REQUESTS = "discovery.hedged.requests";
+
+    private final boolean enabled;
+    private final double percentile;
+    private final Duration minimumDelay;
+    private final double budget;
+    private final CkanQueryApi hedgeCkanQueryApi;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, HedgedRequests> operations = new ConcurrentHashMap<>();
+
+    @Inject
+    public CkanHedging(
+            @ConfigProperty(name = "ckan.hedging.enabled") boolean enabled,
+            @ConfigProperty(name = "ckan.hedging.percentile") double percentile,
+            @ConfigProperty(name = "ckan.hedging.minimum-delay") Duration minimumDelay,
+            @ConfigProperty(name = "ckan.hedging.budget") double budget,
+            @ConfigProperty(name = "ckan.hedging.url") Optional<String> url,
+            MeterRegistry meterRegistry
+    ) {
+        this(enabled, percentile, minimumDelay, budget, url
+                .filter(it -> enabled)
+                .map(it -> QuarkusRestClientBuilder.newBuilder()
+                        .baseUri(URI.create(it))
+                        .build(CkanQueryApi.class))
+                .orElse(null), meterRegistry);
+    }
+
+    CkanHedging(
+            boolean enabled,
+            double percentile,
+            Duration minimumDelay,
+            double budget,
+            CkanQueryApi hedgeCkanQueryApi,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minimumDelay = minimumDelay;
+        this.budget = budget;
+        this.hedgeCkanQueryApi = hedgeCkanQueryApi;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Uni<T> execute(
+            String operation,
+            CkanQueryApi ckanQueryApi,
+            Function<CkanQueryApi, Uni<T>> call
+    ) {
+        if (!enabled) {
+            return call.apply(ckanQueryApi);
+        }
+
+        var hedgeCkanQueryApi = this.hedgeCkanQueryApi != null
+                ? this.hedgeCkanQueryApi
+                : ckanQueryApi;
+        return operations.computeIfAbsent(operation, this::hedgedRequests)
+                .execute(() -> call.apply(ckanQueryApi), () -> call.apply(hedgeCkanQueryApi));
+    }
+
+    Optional<Duration> observedLatency(String operation) {
+        return operations.get(operation).observedLatency();
+    }
+
+    private HedgedRequests hedgedRequests(String operation) {
+        var hedges = Counter.builder(HEDGED_REQUESTS)
+                .tags("client", "ckan", "operation", operation)
+                .register(meterRegistry);
+        return new HedgedRequests(percentile, minimumDelay, budget, hedges::increment);
+    }
+}
@@ -0,0 +1,316 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.github.genomicdatainfrastructure.discovery.utils.AsyncCaches;
+import io.github.genomicdatainfrastructure.discovery.utils.CkanFacetsQueryBuilder;
+import io.github.genomicdatainfrastructure.discovery.utils.DatasetSearchQueryNormalizer;
+import io.github.genomicdatainfrastructure.discovery.utils.Instrumentation;
+import io.github.genomicdatainfrastructure.discovery.utils.PackagesSearchResponseMapper;
+import io.github.genomicdatainfrastructure.discovery.utils.PackagesSearchResponseMerger;
+import io.github.genomicdatainfrastructure.discovery.utils.RequestCoalescer;
+import io.github.genomicdatainfrastructure.discovery.utils.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Optional.ofNullable;
+
+@ApplicationScoped
+public class CkanSearchService {
+
+    static final String SELECTED_FACETS = "[\"access_rights\",\"theme\",\"tags\",\"spatial_uri\",\"organization\",\"publisher_name\",\"res_format\"]";
+    private static final String ANONYMOUS_SEARCH_CACHE = "ckan-anonymous-search";
+    private static final String EXPORT_SORT = "id asc";
+    private static final String NO_FACETS = "[]";
+    private static final String PAGE_KEY_PREFIX = "page:";
+    private static final String EXPORT_AFTER_ID = "id:{\"%s\" TO *]";
+    private static final int UNLIMITED_FACET_VALUES = -1;
+    private static final String AND = " AND ";
+    private static final int DEFAULT_ROWS = 10;
+    private static final int MAXIMUM_ROWS = 1000;
+
+    private final CkanQueryApi ckanQueryApi;
+    private final CkanHedging ckanHedging;
+    private final MeterRegistry meterRegistry;
+    private final int exportPageSize;
+    private final int identifierChunkSize;
+    private final boolean identifierTermsQuery;
+    private final Duration anonymousSearchTtl;
+    private final AsyncCache<String, DatasetsSearchResponse> anonymousSearches;
+    private final RequestCoalescer<List<Object>, PackagesSearchResponse> packageSearchRequests = new RequestCoalescer<>();
+
+    public CkanSearchService(
+            @RestClient CkanQueryApi ckanQueryApi,
+            @ConfigProperty(name = "ckan.anonymous-search-cache.maximum-size") long maximumSize,
+            @ConfigProperty(name = "ckan.anonymous-search-cache.expire-after-write") Duration expireAfterWrite,
+            @ConfigProperty(name = "ckan.export.page-size") int exportPageSize,
+            @ConfigProperty(name = "ckan.identifier-batching.chunk-size") int identifierChunkSize,
+            @ConfigProperty(name = "ckan.identifier-batching.terms-query") boolean identifierTermsQuery,
+            CkanHedging ckanHedging,
+            MeterRegistry meterRegistry
+    ) {
+        this.ckanQueryApi = ckanQueryApi;
+        this.ckanHedging = ckanHedging;
+        this.meterRegistry = meterRegistry;
+        this.exportPageSize = exportPageSize;
+        this.identifierChunkSize = identifierChunkSize;
+        this.identifierTermsQuery = identifierTermsQuery;
+        this.anonymousSearchTtl = expireAfterWrite;
+        this.anonymousSearches = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, anonymousSearches, ANONYMOUS_SEARCH_CACHE);
+    }
+
+    public Uni<DatasetsSearchResponse> search(DatasetSearchQuery query, String ckanAuthorization) {
+        return search(query, SELECTED_FACETS, "", ckanAuthorization);
+    }
+
+    /**
+     * Searches a page of datasets without asking CKAN for facets, for callers that take the
+     * facets from a separate search.
+     */
+    public Uni<DatasetsSearchResponse> searchPage(DatasetSearchQuery query,
+            String ckanAuthorization) {
+        return search(query, NO_FACETS, PAGE_KEY_PREFIX, ckanAuthorization);
+    }
+
+    private Uni<DatasetsSearchResponse> search(
+            DatasetSearchQuery query,
+            String facetFields,
+            String keyPrefix,
+            String ckanAuthorization
+    ) {
+        if (ckanAuthorization != null) {
+            return searchCkan(query, facetFields, ckanAuthorization);
+        }
+
+        var normalizedQuery = DatasetSearchQueryNormalizer.normalize(query);
+        var key = keyPrefix + DatasetSearchQueryNormalizer.hashKey(normalizedQuery);
+        return Uni.createFrom().completionStage(() -> {
+            ServerTiming.cache(ANONYMOUS_SEARCH_CACHE, () -> anonymousSearches.asMap()
+                    .containsKey(key));
+            return AsyncCaches.get(anonymousSearches, key, () -> searchCkan(normalizedQuery,
+                    facetFields, null).subscribeAsCompletionStage());
+        });
+    }
+
+    public Map<String, DatasetsSearchResponse> popularSearches(int limit) {
+        return anonymousSearches.synchronous()
+                .policy()
+                .eviction()
+                .map(eviction -> eviction.hottest(limit))
+                .orElseGet(Map::of);
+    }
+
+    public void restoreSearches(Map<String, DatasetsSearchResponse> searches, Duration age) {
+        if (age.compareTo(anonymousSearchTtl) >= 0) {
+            return;
+        }
+        searches.forEach((key, response) -> anonymousSearches.put(key, CompletableFuture
+                .completedFuture(response)));
+    }
+
+    void onDatasetChange(@Observes DatasetChangeEvent event) {
+        anonymousSearches.synchronous().invalidateAll();
+    }
+
+    private Uni<DatasetsSearchResponse> searchCkan(DatasetSearchQuery query, String facetFields,
+            String ckanAuthorization) {
+        return searchCkanInChunks(query, facetFields, ckanAuthorization)
+                .orElseGet(() -> searchCkanPackages(query, facetFields, null, ckanAuthorization))
+                .map(response -> Instrumentation.mapping(meterRegistry, "packages_search",
+                        () -> PackagesSearchResponseMapper.from(response)));
+    }
+
+    private Optional<Uni<PackagesSearchResponse>> searchCkanInChunks(
+            DatasetSearchQuery query,
+            String facetFields,
+            String ckanAuthorization
+    ) {
+        var chunks = identifierChunks(query);
+        if (chunks.size() < 2) {
+            return Optional.empty();
+        }
+
+        var start = ofNullable(query.getStart()).orElse(0);
+        var rows = ofNullable(query.getRows()).orElse(DEFAULT_ROWS);
+        if (start + rows > MAXIMUM_ROWS) {
+            return Optional.empty();
+        }
+
+        return PackagesSearchResponseMerger.order(query.getSort(), query.getQuery())
+                .map(order -> Uni.join()
+                        .all(chunks.stream()
+                                .map(chunk -> searchCkanPackages(
+                                        CkanFacetsQueryBuilder.withIdentifiers(query, chunk)
+                                                .toBuilder()
+                                                .start(0)
+                                                .rows(start + rows)
+                                                .build(),
+                                        facetFields,
+                                        NO_FACETS.equals(facetFields) ? null
+                                                : UNLIMITED_FACET_VALUES,
+                                        ckanAuthorization
+                                ))
+                                .toList())
+                        .andFailFast()
+                        .map(responses -> PackagesSearchResponseMerger.merge(responses, order,
+                                start, rows)));
+    }
+
+    private List<List<String>> identifierChunks(DatasetSearchQuery query) {
+        if (DatasetSearchQuery.OperatorEnum.AND.equals(query.getOperator())) {
+            return List.of();
+        }
+
+        var identifiers = CkanFacetsQueryBuilder.identifiers(query);
+        var chunks = new ArrayList<List<String>>();
+        for (var i = 0; i < identifiers.size(); i += identifierChunkSize) {
+            chunks.add(identifiers.subList(i, Math.min(i + identifierChunkSize, identifiers
+                    .size())));
+        }
+        return chunks;
+    }
+
+    private Uni<PackagesSearchResponse> searchCkanPackages(
+            DatasetSearchQuery query,
+            String facetFields,
+            Integer facetLimit,
+            String ckanAuthorization
+    ) {
+        var facetsQuery = CkanFacetsQueryBuilder.buildFacetQuery(query, identifierTermsQuery);
+
+        return packageSearchRequests.execute(
+                Arrays.asList(
+                        query.getQuery(),
+                        facetsQuery,
+                        query.getSort(),
+                        query.getRows(),
+                        query.getStart(),
+                        facetFields,
+                        facetLimit,
+                        ckanAuthorization
+                ),
+                () -> ckanHedging.execute("package_search", ckanQueryApi,
+                        api -> Instrumentation.upstream(meterRegistry, "ckan", "package_search",
+                                () -> api.packageSearch(
+                                        query.getQuery(),
+                                        facetsQuery,
+                                        query.getSort(),
+                                        query.getRows(),
+                                        query.getStart(),
+                                        facetFields,
+                                        facetLimit,
+                                        ckanAuthorization
+                                )))
+        );
+    }
+
+    public Multi<SearchedDataset> export(DatasetSearchQuery query, String ckanAuthorization) {
+        var chunks = identifierChunks(query);
+        if (chunks.size() < 2) {
+            return exportPackages(
+                    query.getQuery(),
+                    CkanFacetsQueryBuilder.buildFacetQuery(query, identifierTermsQuery),
+                    ckanAuthorization
+            ).map(PackagesSearchResponseMapper::from);
+        }
+
+        return Multi.createFrom()
+                .iterable(chunks)
+                .onItem()
+                .transformToMultiAndConcatenate(chunk -> exportPackages(
+                        query.getQuery(),
+                        CkanFacetsQueryBuilder.buildFacetQuery(CkanFacetsQueryBuilder
+                                .withIdentifiers(query, chunk), identifierTermsQuery),
+                        ckanAuthorization
+                ))
+                .map(PackagesSearchResponseMapper::from);
+    }
+
+    public Multi<CkanPackage> exportPackages(String q, String fq, String ckanAuthorization) {
+        return exportPages(exportPage(q, fq, null, ckanAuthorization), q, fq, ckanAuthorization);
+    }
+
+    private Multi<CkanPackage> exportPages(
+            Uni<List<CkanPackage>> page,
+            String q,
+            String facetsQuery,
+            String ckanAuthorization
+    ) {
+        return page.onItem().transformToMulti(packages -> {
+            var current = Multi.createFrom().iterable(packages);
+            if (packages.size() < exportPageSize) {
+                return current;
+            }
+
+            var lastId = packages.getLast().getId();
+            var next = exportPage(q, facetsQuery, lastId, ckanAuthorization)
+                    .memoize()
+                    .indefinitely();
+            next.subscribeAsCompletionStage();
+
+            return Multi.createBy()
+                    .concatenating()
+                    .streams(current, exportPages(next, q, facetsQuery, ckanAuthorization));
+        });
+    }
+
+    private Uni<List<CkanPackage>> exportPage(
+            String q,
+            String facetsQuery,
+            String afterId,
+            String ckanAuthorization
+    ) {
+        var fq = afterId != null ? afterId(facetsQuery, afterId) : facetsQuery;
+
+        return Instrumentation.upstream(meterRegistry, "ckan", "package_search",
+                () -> ckanQueryApi.packageSearch(
+                        q,
+                        fq,
+                        EXPORT_SORT,
+                        exportPageSize,
+                        0,
+                        NO_FACETS,
+                        null,
+                        ckanAuthorization
+                )).map(response -> ofNullable(response)
+                        .map(PackagesSearchResponse::getResult)
+                        .map(PackagesSearchResult::getResults)
+                        .orElseGet(List::of));
+    }
+
+    private static String afterId(String facetsQuery, String afterId) {
+        var afterIdQuery = EXPORT_AFTER_ID.formatted(afterId.replace("\\", "\\\\")
+                .replace("\"", "\\\""));
+        return facetsQuery.isEmpty() ? afterIdQuery : facetsQuery + AND + afterIdQuery;
+    }
+}
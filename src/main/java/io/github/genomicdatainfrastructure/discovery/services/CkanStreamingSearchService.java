@@ -0,0 +1,61 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.genomicdatainfrastructure.discovery.exceptions.UnsupportedFacetGroupException;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanStreamingQueryApi;
+import io.github.genomicdatainfrastructure.discovery.utils.CkanFacetsQueryBuilder;
+import io.github.genomicdatainfrastructure.discovery.utils.DatasetSearchQueryNormalizer;
+import io.github.genomicdatainfrastructure.discovery.utils.PackagesSearchResponseStreamMapper;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+
+import java.util.List;
+
+import static io.github.genomicdatainfrastructure.discovery.services.BeaconFilteringTermsService.BEACON_FACET_GROUP;
+import static io.github.genomicdatainfrastructure.discovery.services.CkanSearchService.SELECTED_FACETS;
+
+@ApplicationScoped
+public class CkanStreamingSearchService {
+
+    private final CkanStreamingQueryApi ckanStreamingQueryApi;
+    private final ObjectMapper objectMapper;
+
+    public CkanStreamingSearchService(
+            @RestClient CkanStreamingQueryApi ckanStreamingQueryApi,
+            ObjectMapper objectMapper
+    ) {
+        this.ckanStreamingQueryApi = ckanStreamingQueryApi;
+        this.objectMapper = objectMapper;
+    }
+
+    public Multi<byte[]> search(DatasetSearchQuery query, String ckanAuthorization) {
+        var normalizedQuery = DatasetSearchQueryNormalizer.normalize(query);
+        if (normalizedQuery.getFacets().stream()
+                .anyMatch(it -> BEACON_FACET_GROUP.equals(it.getFacetGroup()))) {
+            throw new UnsupportedFacetGroupException(BEACON_FACET_GROUP);
+        }
+
+        return Multi.createFrom().deferred(() -> {
+            var mapper = new PackagesSearchResponseStreamMapper(objectMapper);
+
+            return ckanStreamingQueryApi.packageSearch(
+                    normalizedQuery.getQuery(),
+                    CkanFacetsQueryBuilder.buildFacetQuery(normalizedQuery),
+                    normalizedQuery.getSort(),
+                    normalizedQuery.getRows(),
+                    normalizedQuery.getStart(),
+                    SELECTED_FACETS,
+                    ckanAuthorization
+            )
+                    .map(mapper::map)
+                    .onCompletion().continueWith(() -> List.of(mapper.complete()))
+                    .filter(chunk -> chunk.length > 0);
+        });
+    }
+}
@@ -0,0 +1,27 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+
+public record DatasetChangeEvent(
+                                 Type type,
+                                 String id,
+                                 String name,
+                                 CkanPackage dataset
+) {
+
+    public enum Type {
+        UPDATED, DELETED
+    }
+
+    public static DatasetChangeEvent updated(CkanPackage dataset) {
+        return new DatasetChangeEvent(Type.UPDATED, dataset.getId(), dataset.getName(), dataset);
+    }
+
+    public static DatasetChangeEvent deleted(String id, String name) {
+        return new DatasetChangeEvent(Type.DELETED, id, name, null);
+    }
+}
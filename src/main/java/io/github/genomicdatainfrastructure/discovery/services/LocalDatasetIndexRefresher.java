@@ -0,0 +1,38 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+
+@ApplicationScoped
+public class LocalDatasetIndexRefresher {
+
+    private final LocalDatasetIndexService localDatasetIndexService;
+    private final boolean localIndexEnabled;
+
+    public LocalDatasetIndexRefresher(
+            LocalDatasetIndexService localDatasetIndexService,
+            @ConfigProperty(name = "sources.local-index") boolean localIndexEnabled
+    ) {
+        this.localDatasetIndexService = localDatasetIndexService;
+        this.localIndexEnabled = localIndexEnabled;
+    }
+
+    void load(@Observes StartupEvent event) {
+        if (localIndexEnabled) {
+            localDatasetIndexService.load()
+                    .onFailure()
+                    .retry()
+                    .withBackOff(Duration.ofSeconds(1), Duration.ofMinutes(1))
+                    .indefinitely()
+                    .subscribeAsCompletionStage();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
+import io.github.genomicdatainfrastructure.discovery.utils.DatasetIndex;
+import io.github.genomicdatainfrastructure.discovery.utils.DatasetSearchQueryNormalizer;
+import io.github.genomicdatainfrastructure.discovery.utils.PackagesSearchResponseMapper;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Optional.ofNullable;
+
+@ApplicationScoped
+public class LocalDatasetIndexService {
+
+    private static final DatasetSearchQuery FACET_TITLES_QUERY = DatasetSearchQuery.builder()
+            .rows(0)
+            .build();
+
+    private final CkanSearchService ckanSearchService;
+    private final DatasetIndex index = new DatasetIndex();
+    private volatile boolean ready;
+
+    public LocalDatasetIndexService(CkanSearchService ckanSearchService) {
+        this.ckanSearchService = ckanSearchService;
+    }
+
+    public Uni<Integer> load() {
+        var loaded = new AtomicInteger();
+
+        return ckanSearchService.search(FACET_TITLES_QUERY, null)
+                .invoke(response -> index.titleFacets(facetTitles(response)))
+                .onItem()
+                .transformToMulti(ignored -> ckanSearchService.exportPackages(null, "", null))
+                .invoke(dataset -> {
+                    index.upsert(dataset);
+                    loaded.incrementAndGet();
+                })
+                .collect()
+                .last()
+                .map(ignored -> {
+                    ready = true;
+                    return loaded.get();
+                });
+    }
+
+    void onDatasetChange(@Observes DatasetChangeEvent event) {
+        switch (event.type()) {
+            case UPDATED -> index.upsert(event.dataset());
+            case DELETED -> index.remove(event.id());
+        }
+    }
+
+    public boolean canAnswer(DatasetSearchQuery query) {
+        return ready && index.canAnswer(DatasetSearchQueryNormalizer.normalize(query));
+    }
+
+    public Uni<DatasetsSearchResponse> search(DatasetSearchQuery query) {
+        return Uni.createFrom().item(() -> index.search(DatasetSearchQueryNormalizer.normalize(
+                query)));
+    }
+
+    public Multi<SearchedDataset> export(DatasetSearchQuery query) {
+        return Multi.createFrom().iterable(() -> index.export(DatasetSearchQueryNormalizer
+                .normalize(query)).iterator());
+    }
+
+    private static Map<String, String> facetTitles(DatasetsSearchResponse response) {
+        var titles = new HashMap<String, String>();
+        for (var facetGroup : ofNullable(response.getFacetGroups()).orElseGet(List::of)) {
+            if (!PackagesSearchResponseMapper.CKAN_FACET_GROUP.equals(facetGroup.getKey())) {
+                continue;
+            }
+            for (var facet : ofNullable(facetGroup.getFacets()).orElseGet(List::of)) {
+                if (facet.getLabel() != null) {
+                    titles.put(facet.getKey(), facet.getLabel());
+                }
+            }
+        }
+        return titles;
+    }
+}
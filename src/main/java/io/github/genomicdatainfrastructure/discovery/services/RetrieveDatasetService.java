@@ -4,39 +4,320 @@
 
 package io.github.genomicdatainfrastructure.discovery.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
 import io.github.genomicdatainfrastructure.discovery.exceptions.DatasetNotFoundException;
+import io.github.genomicdatainfrastructure.discovery.exceptions.TooManyDatasetIdsException;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetRetrieveResult;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsRetrieveQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsRetrieveResponse;
+import io.github.genomicdatainfrastructure.discovery.model.ErrorResponse;
 import io.github.genomicdatainfrastructure.discovery.model.RetrievedDataset;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
 import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackageShowResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.github.genomicdatainfrastructure.discovery.utils.Instrumentation;
 import io.github.genomicdatainfrastructure.discovery.utils.PackageShowMapper;
+import io.github.genomicdatainfrastructure.discovery.utils.RequestCoalescer;
+import io.github.genomicdatainfrastructure.discovery.utils.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.WebApplicationException;
+import lombok.extern.java.Log;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+import static jakarta.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+import static java.util.Optional.ofNullable;
+
+@Log
 @ApplicationScoped
 public class RetrieveDatasetService {
 
+    private static final String PUBLIC_DATASETS_CACHE = "ckan-public-datasets";
+    private static final String REVISION_FIELDS = "id,name,metadata_modified";
+    private static final String REVISION_FILTER = "id:\"%1$s\" OR name:\"%1$s\"";
+    private static final String NOT_FOUND_TITLE = "Dataset Not Found";
+    private static final String NOT_EXPECTED_TITLE = "Not expected exception";
+
     private final CkanQueryApi ckanQueryApi;
+    private final CkanHedging ckanHedging;
+    private final MeterRegistry meterRegistry;
+    private final Duration revalidateAfter;
+    private final int bulkConcurrency;
+    private final int bulkMaximumIds;
+    private final Clock clock;
+    private final Cache<String, CachedDataset> publicDatasets;
+    private final RequestCoalescer<List<String>, CkanPackageShowResponse> packageShowRequests = new RequestCoalescer<>();
+    private final RequestCoalescer<String, Optional<String>> revisionRequests = new RequestCoalescer<>();
 
+    @Inject
     public RetrieveDatasetService(
-            @RestClient CkanQueryApi ckanQueryApi
+            @RestClient CkanQueryApi ckanQueryApi,
+            @ConfigProperty(name = "ckan.public-dataset-cache.maximum-size") long maximumSize,
+            @ConfigProperty(name = "ckan.public-dataset-cache.expire-after-access") Duration expireAfterAccess,
+            @ConfigProperty(name = "ckan.public-dataset-cache.revalidate-after") Duration revalidateAfter,
+            @ConfigProperty(name = "ckan.public-dataset-cache.not-found-ttl") Duration notFoundTtl,
+            @ConfigProperty(name = "ckan.bulk-retrieve.concurrency") int bulkConcurrency,
+            @ConfigProperty(name = "ckan.bulk-retrieve.maximum-ids") int bulkMaximumIds,
+            CkanHedging ckanHedging,
+            MeterRegistry meterRegistry
+    ) {
+        this(ckanQueryApi, maximumSize, expireAfterAccess, revalidateAfter, notFoundTtl,
+                bulkConcurrency, bulkMaximumIds, ckanHedging, meterRegistry, Clock.systemUTC());
+    }
+
+    RetrieveDatasetService(
+            CkanQueryApi ckanQueryApi,
+            long maximumSize,
+            Duration expireAfterAccess,
+            Duration revalidateAfter,
+            Duration notFoundTtl,
+            int bulkConcurrency,
+            int bulkMaximumIds,
+            CkanHedging ckanHedging,
+            MeterRegistry meterRegistry,
+            Clock clock
     ) {
         this.ckanQueryApi = ckanQueryApi;
+        this.ckanHedging = ckanHedging;
+        this.meterRegistry = meterRegistry;
+        this.revalidateAfter = revalidateAfter;
+        this.bulkConcurrency = bulkConcurrency;
+        this.bulkMaximumIds = bulkMaximumIds;
+        this.clock = clock;
+        this.publicDatasets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new CachedDatasetExpiry(expireAfterAccess, notFoundTtl))
+                .ticker(() -> clock.millis() * 1_000_000)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, publicDatasets, PUBLIC_DATASETS_CACHE);
+    }
+
+    public Uni<RetrievedDataset> retrieve(String id, String accessToken) {
+        if (accessToken != null) {
+            return retrieveCkanPackage(id, accessToken)
+                    .map(response -> map(response.getResult()));
+        }
+
+        return Uni.createFrom().deferred(() -> retrievePublicDataset(id))
+                .map(cached -> {
+                    if (cached.dataset() == null) {
+                        throw new DatasetNotFoundException(id);
+                    }
+                    return cached.dataset();
+                });
+    }
+
+    public Uni<DatasetsRetrieveResponse> retrieveAll(DatasetsRetrieveQuery query,
+            String accessToken) {
+        var ids = List.copyOf(new LinkedHashSet<>(ofNullable(query)
+                .map(DatasetsRetrieveQuery::getIds)
+                .orElseGet(List::of)
+                .stream()
+                .filter(Objects::nonNull)
+                .toList()));
+        if (ids.size() > bulkMaximumIds) {
+            return Uni.createFrom().failure(new TooManyDatasetIdsException(ids.size(),
+                    bulkMaximumIds));
+        }
+
+        return Multi.createFrom()
+                .iterable(ids)
+                .onItem()
+                .transformToUni(id -> retrieve(id, accessToken)
+                        .map(dataset -> DatasetRetrieveResult.builder()
+                                .id(id)
+                                .dataset(dataset)
+                                .build())
+                        .onFailure()
+                        .recoverWithItem(failure -> failed(id, failure)))
+                .merge(bulkConcurrency)
+                .collect()
+                .asMap(DatasetRetrieveResult::getId, Function.identity())
+                .map(results -> DatasetsRetrieveResponse.builder()
+                        .results(ids.stream().map(results::get).toList())
+                        .build());
     }
 
-    public RetrievedDataset retrieve(String id, String accessToken) {
-        var response = retrieveCkanPackage(id, accessToken);
-        return PackageShowMapper.from(response.getResult());
+    public Uni<CkanPackageShowResponse> retrieveCkanPackage(String id, String accessToken) {
+        return packageShowRequests.execute(
+                Arrays.asList(id, accessToken),
+                () -> ckanHedging.execute("package_show", ckanQueryApi,
+                        api -> Instrumentation.upstream(meterRegistry, "ckan", "package_show",
+                                () -> api.packageShow(id, accessToken)))
+        )
+                .onFailure(RetrieveDatasetService::isNotFound)
+                .transform(failure -> new DatasetNotFoundException(id));
     }
 
-    public CkanPackageShowResponse retrieveCkanPackage(String id, String accessToken) {
-        try {
-            return ckanQueryApi.packageShow(id, accessToken);
-        } catch (WebApplicationException e) {
-            if (e.getResponse().getStatus() == 404) {
-                throw new DatasetNotFoundException(id);
+    Map<String, CachedDataset> publicDatasets() {
+        var datasets = new HashMap<String, CachedDataset>();
+        publicDatasets.asMap().forEach((id, cached) -> {
+            if (cached.dataset() != null) {
+                datasets.put(id, cached);
             }
-            throw e;
+        });
+        return datasets;
+    }
+
+    void restorePublicDatasets(Map<String, CachedDataset> datasets) {
+        datasets.forEach(publicDatasets.asMap()::putIfAbsent);
+    }
+
+    void onDatasetChange(@Observes DatasetChangeEvent event) {
+        publicDatasets.invalidate(event.id());
+        if (event.name() != null) {
+            publicDatasets.invalidate(event.name());
+        }
+    }
+
+    private Uni<CachedDataset> retrievePublicDataset(String id) {
+        var cached = publicDatasets.getIfPresent(id);
+        ServerTiming.cache(PUBLIC_DATASETS_CACHE, () -> cached != null);
+        if (cached == null) {
+            return fetchPublicDataset(id);
+        }
+
+        return isStillValid(id, cached)
+                .chain(valid -> valid
+                        ? Uni.createFrom().item(cached)
+                        : fetchPublicDataset(id));
+    }
+
+    private Uni<Boolean> isStillValid(String id, CachedDataset cached) {
+        if (cached.dataset() == null) {
+            return Uni.createFrom().item(true);
+        }
+        if (clock.instant().isBefore(cached.validatedAt().plus(revalidateAfter))) {
+            return Uni.createFrom().item(true);
+        }
+
+        return revisionRequests.execute(id, () -> retrieveMetadataModified(id))
+                .map(metadataModified -> {
+                    if (metadataModified.isEmpty() || !metadataModified.get().equals(cached
+                            .metadataModified())) {
+                        return false;
+                    }
+
+                    publicDatasets.asMap().replace(id, cached, cached.revalidated(clock.instant()));
+                    return true;
+                });
+    }
+
+    private Uni<Optional<String>> retrieveMetadataModified(String id) {
+        return Instrumentation.upstream(meterRegistry, "ckan", "package_fields_search",
+                () -> ckanQueryApi.packageFieldsSearch(
+                        REVISION_FILTER.formatted(id.replace("\\", "\\\\").replace("\"",
+                                "\\\"")),
+                        REVISION_FIELDS,
+                        null,
+                        1,
+                        null
+                )).map(response -> ofNullable(response)
+                        .map(PackagesSearchResponse::getResult)
+                        .map(PackagesSearchResult::getResults)
+                        .orElseGet(List::of)
+                        .stream()
+                        .filter(it -> id.equals(it.getId()) || id.equals(it.getName()))
+                        .map(CkanPackage::getMetadataModified)
+                        .filter(Objects::nonNull)
+                        .findFirst());
+    }
+
+    private Uni<CachedDataset> fetchPublicDataset(String id) {
+        return retrieveCkanPackage(id, null)
+                .map(response -> new CachedDataset(
+                        map(response.getResult()),
+                        response.getResult().getMetadataModified(),
+                        clock.instant()
+                ))
+                .onFailure(DatasetNotFoundException.class)
+                .recoverWithItem(() -> new CachedDataset(null, null, clock.instant()))
+                .invoke(fetched -> publicDatasets.put(id, fetched));
+    }
+
+    private RetrievedDataset map(CkanPackage dataset) {
+        return Instrumentation.mapping(meterRegistry, "package_show",
+                () -> PackageShowMapper.from(dataset));
+    }
+
+    private static DatasetRetrieveResult failed(String id, Throwable failure) {
+        if (failure instanceof DatasetNotFoundException) {
+            return DatasetRetrieveResult.builder()
+                    .id(id)
+                    .error(new ErrorResponse(NOT_FOUND_TITLE, NOT_FOUND.getStatusCode(),
+                            failure.getMessage()))
+                    .build();
+        }
+
+        log.log(Level.SEVERE, failure, failure::getMessage);
+        return DatasetRetrieveResult.builder()
+                .id(id)
+                .error(new ErrorResponse(NOT_EXPECTED_TITLE, INTERNAL_SERVER_ERROR
+                        .getStatusCode(), failure.getMessage()))
+                .build();
+    }
+
+    private static boolean isNotFound(Throwable failure) {
+        return failure instanceof WebApplicationException exception
+                && exception.getResponse().getStatus() == 404;
+    }
+
+    record CachedDataset(
+                         RetrievedDataset dataset,
+                         String metadataModified,
+                         Instant validatedAt
+    ) {
+
+        CachedDataset revalidated(Instant now) {
+            return new CachedDataset(dataset, metadataModified, now);
+        }
+    }
+
+    private record CachedDatasetExpiry(
+                                       Duration expireAfterAccess,
+                                       Duration notFoundTtl
+    ) implements Expiry<String, CachedDataset> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedDataset value, long currentTime) {
+            return value.dataset() == null ? notFoundTtl.toNanos() : expireAfterAccess.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedDataset value, long currentTime,
+                long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedDataset value, long currentTime,
+                long currentDuration) {
+            return value.dataset() == null ? currentDuration : expireAfterAccess.toNanos();
         }
     }
 }
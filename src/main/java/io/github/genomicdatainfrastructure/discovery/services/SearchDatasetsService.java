@@ -6,18 +6,66 @@ package io.github.genomicdatainfrastructure.discovery.services;
 
 import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
 import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
 import io.github.genomicdatainfrastructure.discovery.repositories.DatasetsRepository;
+import io.github.genomicdatainfrastructure.discovery.utils.DatasetSearchQueryNormalizer;
+import io.github.genomicdatainfrastructure.discovery.utils.Tracing;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Tracer;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
 
+import java.util.List;
+
+import static io.github.genomicdatainfrastructure.discovery.services.BeaconFilteringTermsService.BEACON_FACET_GROUP;
+import static java.util.Optional.ofNullable;
+
 @ApplicationScoped
 public class SearchDatasetsService {
 
+    public static final AttributeKey<Long> FACETS = AttributeKey.longKey(
+            "discovery.search.facets");
+    public static final AttributeKey<Long> BEACON_FILTERS = AttributeKey.longKey(
+            "discovery.search.beacon_filters");
+    public static final AttributeKey<Long> ROWS = AttributeKey.longKey("discovery.search.rows");
+    public static final AttributeKey<Long> RESULTS = AttributeKey.longKey(
+            "discovery.search.results");
+
     @Inject
     Instance<DatasetsRepository> datasetsRepository;
 
-    public DatasetsSearchResponse search(DatasetSearchQuery query, String accessToken) {
-        return datasetsRepository.get().search(query, accessToken);
+    @Inject
+    Tracer tracer;
+
+    public Uni<DatasetsSearchResponse> search(DatasetSearchQuery query, String accessToken) {
+        var normalizedQuery = DatasetSearchQueryNormalizer.normalize(query);
+        return Tracing.span(
+                tracer,
+                "discovery.search",
+                searchAttributes(normalizedQuery),
+                response -> Attributes.of(RESULTS, (long) ofNullable(response.getCount())
+                        .orElse(0)),
+                () -> datasetsRepository.get().search(normalizedQuery, accessToken)
+        );
+    }
+
+    public Multi<SearchedDataset> export(DatasetSearchQuery query, String accessToken) {
+        var normalizedQuery = DatasetSearchQueryNormalizer.normalize(query);
+        return datasetsRepository.get().export(normalizedQuery, accessToken);
+    }
+
+    private Attributes searchAttributes(DatasetSearchQuery query) {
+        var facets = ofNullable(query.getFacets()).orElseGet(List::of);
+        return Attributes.of(
+                FACETS, (long) facets.size(),
+                BEACON_FILTERS, facets.stream()
+                        .filter(it -> BEACON_FACET_GROUP.equals(it.getFacetGroup()))
+                        .count(),
+                ROWS, (long) ofNullable(query.getRows()).orElse(0)
+        );
     }
 }
@@ -0,0 +1,50 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.interceptor.Interceptor;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+
+@ApplicationScoped
+public class WarmStateSnapshotRefresher {
+
+    private final WarmStateSnapshotService warmStateSnapshotService;
+    private final boolean snapshotEnabled;
+
+    public WarmStateSnapshotRefresher(
+            WarmStateSnapshotService warmStateSnapshotService,
+            @ConfigProperty(name = "discovery.snapshot.enabled") boolean snapshotEnabled
+    ) {
+        this.warmStateSnapshotService = warmStateSnapshotService;
+        this.snapshotEnabled = snapshotEnabled;
+    }
+
+    void restore(@Observes @Priority(Interceptor.Priority.APPLICATION) StartupEvent event) {
+        if (snapshotEnabled) {
+            warmStateSnapshotService.restore();
+        }
+    }
+
+    @Scheduled(every = "${discovery.snapshot.interval}", delayed = "${discovery.snapshot.interval}", concurrentExecution = SKIP)
+    void save() {
+        if (snapshotEnabled) {
+            warmStateSnapshotService.save();
+        }
+    }
+
+    void save(@Observes ShutdownEvent event) {
+        if (snapshotEnabled) {
+            warmStateSnapshotService.save();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.java.Log;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Log
+@ApplicationScoped
+public class WarmStateSnapshotService {
+
+    private final BeaconFilteringTermsService beaconFilteringTermsService;
+    private final CkanSearchService ckanSearchService;
+    private final RetrieveDatasetService retrieveDatasetService;
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final Duration maxAge;
+    private final int maxSearchResponses;
+    private final Clock clock;
+
+    @Inject
+    public WarmStateSnapshotService(
+            BeaconFilteringTermsService beaconFilteringTermsService,
+            CkanSearchService ckanSearchService,
+            RetrieveDatasetService retrieveDatasetService,
+            ObjectMapper objectMapper,
+            @ConfigProperty(name = "discovery.snapshot.file") String file,
+            @ConfigProperty(name = "discovery.snapshot.max-age") Duration maxAge,
+            @ConfigProperty(name = "discovery.snapshot.max-search-responses") int maxSearchResponses
+    ) {
+        this(beaconFilteringTermsService, ckanSearchService, retrieveDatasetService, objectMapper,
+                file, maxAge, maxSearchResponses, Clock.systemUTC());
+    }
+
+    WarmStateSnapshotService(
+            BeaconFilteringTermsService beaconFilteringTermsService,
+            CkanSearchService ckanSearchService,
+            RetrieveDatasetService retrieveDatasetService,
+            ObjectMapper objectMapper,
+            String file,
+            Duration maxAge,
+            int maxSearchResponses,
+            Clock clock
+    ) {
+        this.beaconFilteringTermsService = beaconFilteringTermsService;
+        this.ckanSearchService = ckanSearchService;
+        this.retrieveDatasetService = retrieveDatasetService;
+        this.objectMapper = objectMapper;
+        this.file = Path.of(file);
+        this.maxAge = maxAge;
+        this.maxSearchResponses = maxSearchResponses;
+        this.clock = clock;
+    }
+
+    public synchronized void save() {
+        var snapshot = new Snapshot(
+                clock.instant(),
+                beaconFilteringTermsService.publicFilteringTerms().orElse(null),
+                ckanSearchService.popularSearches(maxSearchResponses),
+                retrieveDatasetService.publicDatasets()
+        );
+
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (var output = new GZIPOutputStream(Files.newOutputStream(temporary))) {
+                objectMapper.writeValue(output, snapshot);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.log(Level.WARNING, e, () -> "Skipping snapshot write to %s".formatted(file));
+        }
+    }
+
+    public synchronized boolean restore() {
+        if (!Files.exists(file)) {
+            return false;
+        }
+
+        Snapshot snapshot;
+        try (var input = new GZIPInputStream(Files.newInputStream(file))) {
+            snapshot = objectMapper.readValue(input, Snapshot.class);
+        } catch (IOException e) {
+            log.log(Level.WARNING, e, () -> "Ignoring unreadable snapshot %s".formatted(file));
+            return false;
+        }
+
+        if (snapshot.createdAt().plus(maxAge).isBefore(clock.instant())) {
+            return false;
+        }
+
+        if (snapshot.publicFilteringTerms() != null) {
+            beaconFilteringTermsService.restorePublicFilteringTerms(snapshot
+                    .publicFilteringTerms());
+        }
+        if (snapshot.searches() != null) {
+            ckanSearchService.restoreSearches(snapshot.searches(),
+                    Duration.between(snapshot.createdAt(), clock.instant()));
+        }
+        if (snapshot.datasets() != null) {
+            retrieveDatasetService.restorePublicDatasets(snapshot.datasets());
+        }
+        return true;
+    }
+
+    record Snapshot(
+                    Instant createdAt,
+                    FacetGroup publicFilteringTerms,
+                    Map<String, DatasetsSearchResponse> searches,
+                    Map<String, RetrieveDatasetService.CachedDataset> datasets
+    ) {
+    }
+}
@@ -0,0 +1,69 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.joining;
+
+import io.quarkus.oidc.runtime.OidcJwtCallerPrincipal;
+import io.quarkus.oidc.runtime.OidcUtils;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.vertx.core.json.JsonArray;
+import lombok.experimental.UtilityClass;
+
+import java.util.Optional;
+
+@UtilityClass
+public class AccessTokens {
+
+    private final String SUBJECT_CLAIM = "sub";
+    private final String UNKNOWN_SUBJECT = "unknown";
+
+    public String rawToken(SecurityIdentity identity) {
+        if (identity.isAnonymous()) {
+            return null;
+        }
+        var principal = (OidcJwtCallerPrincipal) identity.getPrincipal();
+        return principal.getRawToken();
+    }
+
+    public String subject(String accessToken) {
+        try {
+            return ofNullable(OidcUtils.decodeJwtContent(accessToken))
+                    .map(it -> it.getString(SUBJECT_CLAIM))
+                    .orElse(UNKNOWN_SUBJECT);
+        } catch (RuntimeException exception) {
+            return UNKNOWN_SUBJECT;
+        }
+    }
+
+    public Optional<String> claim(String accessToken, String claim) {
+        try {
+            return ofNullable(OidcUtils.decodeJwtContent(accessToken))
+                    .map(it -> it.getValue(claim))
+                    .map(AccessTokens::canonical);
+        } catch (RuntimeException exception) {
+            return Optional.empty();
+        }
+    }
+
+    public boolean isKnownSubject(String subject) {
+        return !UNKNOWN_SUBJECT.equals(subject);
+    }
+
+    public String cacheKey(String accessToken) {
+        return subject(accessToken) + ":" + Hashes.sha256(accessToken);
+    }
+
+    private String canonical(Object value) {
+        if (value instanceof JsonArray values) {
+            return values.stream()
+                    .map(String::valueOf)
+                    .sorted()
+                    .collect(joining(",", "[", "]"));
+        }
+        return String.valueOf(value);
+    }
+}
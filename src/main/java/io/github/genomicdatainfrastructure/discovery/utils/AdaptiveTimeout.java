@@ -0,0 +1,63 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import io.smallrye.mutiny.TimeoutException;
+import io.smallrye.mutiny.Uni;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+public class AdaptiveTimeout {
+
+    private final double percentile;
+    private final double multiplier;
+    private final Duration minimum;
+    private final Duration maximum;
+    private final LatencyWindow latencies;
+    private volatile Duration timeout;
+
+    public AdaptiveTimeout(
+            double percentile,
+            double multiplier,
+            Duration minimum,
+            Duration maximum,
+            int windowSize,
+            int minimumSamples
+    ) {
+        this.percentile = percentile;
+        this.multiplier = multiplier;
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.latencies = new LatencyWindow(windowSize, minimumSamples);
+        this.timeout = maximum;
+    }
+
+    public <T> Uni<T> execute(Supplier<Uni<T>> call) {
+        return Uni.createFrom().deferred(() -> {
+            var started = System.nanoTime();
+            return call.get()
+                    .ifNoItem()
+                    .after(timeout)
+                    .fail()
+                    .invoke(() -> record(System.nanoTime() - started))
+                    .onFailure(TimeoutException.class)
+                    .invoke(() -> record(System.nanoTime() - started));
+        });
+    }
+
+    public Duration timeout() {
+        return timeout;
+    }
+
+    private void record(long latency) {
+        latencies.record(latency);
+        latencies.percentile(percentile).ifPresent(observed -> {
+            var adaptive = Duration.ofNanos((long) (observed.toNanos() * multiplier));
+            timeout = adaptive.compareTo(minimum) < 0 ? minimum
+                    : adaptive.compareTo(maximum) > 0 ? maximum : adaptive;
+        });
+    }
+}
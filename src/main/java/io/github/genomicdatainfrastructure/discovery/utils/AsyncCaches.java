@@ -0,0 +1,51 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+@UtilityClass
+public class AsyncCaches {
+
+    /**
+     * Like {@link AsyncCache#get(Object, java.util.function.BiFunction)}, but starts the load
+     * after the entry is in place rather than inside the cache's map lock, which is a monitor: a
+     * virtual thread that parks while subscribing there would pin its carrier. Hits and misses
+     * are still recorded through {@link AsyncCache#getIfPresent(Object)}.
+     */
+    public <K, V> CompletableFuture<V> get(
+            AsyncCache<K, V> cache,
+            K key,
+            Supplier<CompletableFuture<V>> loader
+    ) {
+        var cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        var pending = new CompletableFuture<V>();
+        var concurrent = cache.asMap().putIfAbsent(key, pending);
+        if (concurrent != null) {
+            return concurrent;
+        }
+
+        try {
+            loader.get().whenComplete((value, failure) -> {
+                if (failure != null) {
+                    pending.completeExceptionally(failure);
+                } else {
+                    pending.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+        }
+        return pending;
+    }
+}
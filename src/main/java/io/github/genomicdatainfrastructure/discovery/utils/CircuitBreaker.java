@@ -0,0 +1,137 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import io.github.genomicdatainfrastructure.discovery.exceptions.CircuitBreakerOpenException;
+import io.smallrye.mutiny.Uni;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRatio;
+    private final Duration openDelay;
+    private final Predicate<Throwable> isFailure;
+    private final Clock clock;
+    private final boolean[] outcomes;
+    private int calls;
+    private int failures;
+    private int next;
+    private State state = State.CLOSED;
+    private Instant openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(
+            String name,
+            int windowSize,
+            int minimumCalls,
+            double failureRatio,
+            Duration openDelay,
+            Predicate<Throwable> isFailure,
+            Clock clock
+    ) {
+        this.name = name;
+        this.minimumCalls = minimumCalls;
+        this.failureRatio = failureRatio;
+        this.openDelay = openDelay;
+        this.isFailure = isFailure;
+        this.clock = clock;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    public <T> Uni<T> execute(Supplier<Uni<T>> call) {
+        return Uni.createFrom().deferred(() -> {
+            if (!acquire()) {
+                return Uni.createFrom().failure(new CircuitBreakerOpenException(name));
+            }
+
+            return call.get()
+                    .onItemOrFailure()
+                    .invoke((item, failure) -> record(failure != null && isFailure.test(
+                            failure)))
+                    .onCancellation()
+                    .invoke(this::release);
+        });
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private synchronized boolean acquire() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> {
+                if (clock.instant().isBefore(openedAt.plus(openDelay))) {
+                    yield false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                yield true;
+            }
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    private synchronized void release() {
+        trialInFlight = false;
+    }
+
+    private synchronized void record(boolean failed) {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            if (failed) {
+                open();
+            } else {
+                close();
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+
+        if (calls == outcomes.length) {
+            failures -= outcomes[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        outcomes[next] = failed;
+        failures += failed ? 1 : 0;
+        next = (next + 1) % outcomes.length;
+
+        if (calls >= minimumCalls && failures >= failureRatio * calls) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = clock.instant();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        calls = 0;
+        failures = 0;
+        next = 0;
+    }
+}
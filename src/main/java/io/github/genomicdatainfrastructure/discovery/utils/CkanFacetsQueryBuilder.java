@@ -4,17 +4,22 @@
 
 package io.github.genomicdatainfrastructure.discovery.utils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.TreeMap;
 
 import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
 import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
 import lombok.experimental.UtilityClass;
+import org.apache.commons.lang3.StringUtils;
 
 import static java.util.Objects.nonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
 
 @UtilityClass
 public class CkanFacetsQueryBuilder {
@@ -23,22 +28,64 @@ public class CkanFacetsQueryBuilder {
     private final String QUOTED_VALUE = "\"%s\"";
     private final String FACET_PATTERN = "%s:(%s)";
     private final String AND = " AND ";
+    private final String IDENTIFIER_FIELD = "identifier";
+    private final String TERMS_QUERY = "_query_:\"{!terms f=%s}%s\"";
+    private final String TERMS_SEPARATOR = ",";
+    private final String TERMS_RESERVED_CHARACTERS = ",\"\\}";
 
     public String buildFacetQuery(DatasetSearchQuery query) {
+        return buildFacetQuery(query, false);
+    }
+
+    public String buildFacetQuery(DatasetSearchQuery query, boolean identifierTermsQuery) {
         var facets = query.getFacets();
         var operator = CkanQueryOperatorMapper.getOperator(query.getOperator());
+        var termsQuery = identifierTermsQuery
+                && !DatasetSearchQuery.OperatorEnum.AND.equals(query.getOperator());
 
         var nonNullFacets = ofNullable(facets)
                 .orElseGet(List::of)
                 .stream()
                 .filter(CkanFacetsQueryBuilder::isCkanGroupAndFacetIsNotBlank)
-                .collect(groupingBy(DatasetSearchQueryFacet::getFacet));
+                .collect(groupingBy(DatasetSearchQueryFacet::getFacet, TreeMap::new, toList()));
 
         return nonNullFacets.entrySet().stream()
-                .map(entry -> getFacetQuery(entry.getKey(), entry.getValue(), operator))
+                .map(entry -> termsQuery && IDENTIFIER_FIELD.equals(entry.getKey())
+                        && canUseTermsQuery(entry.getValue())
+                                ? getTermsQuery(entry.getKey(), entry.getValue())
+                                : getFacetQuery(entry.getKey(), entry.getValue(), operator))
                 .collect(joining(AND));
     }
 
+    public List<String> identifiers(DatasetSearchQuery query) {
+        return ofNullable(query.getFacets())
+                .orElseGet(List::of)
+                .stream()
+                .filter(CkanFacetsQueryBuilder::isCkanGroupAndFacetIsNotBlank)
+                .filter(facet -> IDENTIFIER_FIELD.equals(facet.getFacet()))
+                .map(DatasetSearchQueryFacet::getValue)
+                .distinct()
+                .toList();
+    }
+
+    public DatasetSearchQuery withIdentifiers(DatasetSearchQuery query, List<String> identifiers) {
+        var facets = ofNullable(query.getFacets())
+                .orElseGet(List::of)
+                .stream()
+                .filter(facet -> !isCkanGroupAndFacetIsNotBlank(facet)
+                        || !IDENTIFIER_FIELD.equals(facet.getFacet()))
+                .collect(toCollection(ArrayList::new));
+        identifiers.forEach(identifier -> facets.add(DatasetSearchQueryFacet.builder()
+                .facetGroup(CKAN_FACET_GROUP)
+                .facet(IDENTIFIER_FIELD)
+                .value(identifier)
+                .build()));
+
+        return query.toBuilder()
+                .facets(facets)
+                .build();
+    }
+
     private Boolean isCkanGroupAndFacetIsNotBlank(DatasetSearchQueryFacet facet) {
         return Objects.equals(CKAN_FACET_GROUP, facet.getFacetGroup()) &&
                 nonNull(facet.getFacet()) &&
@@ -47,6 +94,20 @@ public class CkanFacetsQueryBuilder {
                 !facet.getValue().isBlank();
     }
 
+    private boolean canUseTermsQuery(List<DatasetSearchQueryFacet> facets) {
+        return facets.stream()
+                .map(DatasetSearchQueryFacet::getValue)
+                .noneMatch(value -> StringUtils.containsAny(value, TERMS_RESERVED_CHARACTERS));
+    }
+
+    private String getTermsQuery(String key, List<DatasetSearchQueryFacet> facets) {
+        var values = facets.stream()
+                .map(DatasetSearchQueryFacet::getValue)
+                .collect(joining(TERMS_SEPARATOR));
+
+        return TERMS_QUERY.formatted(key, values);
+    }
+
     private String getFacetQuery(
             String key, List<DatasetSearchQueryFacet> facets, String operator
     ) {
@@ -0,0 +1,408 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.Facet;
+import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
+import io.github.genomicdatainfrastructure.discovery.model.ValueLabel;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanValueLabel;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsLast;
+import static java.util.Comparator.reverseOrder;
+
+public class DatasetIndex {
+
+    public static final List<String> FACETS = List.of(
+            "access_rights",
+            "theme",
+            "tags",
+            "spatial_uri",
+            "organization",
+            "publisher_name",
+            "res_format"
+    );
+
+    private static final String CKAN_FACET_GROUP = PackagesSearchResponseMapper.CKAN_FACET_GROUP;
+    private static final String EXPORT_SORT = "id asc";
+    private static final Comparator<SearchedDataset> BY_ID = comparing(SearchedDataset::getId);
+    private static final Map<String, Comparator<SearchedDataset>> SORTS = Map.of(
+            "score desc, metadata_modified desc", descending(SearchedDataset::getModifiedAt),
+            "metadata_modified desc", descending(SearchedDataset::getModifiedAt),
+            "metadata_modified asc", ascending(SearchedDataset::getModifiedAt),
+            "metadata_created desc", descending(SearchedDataset::getCreatedAt),
+            "metadata_created asc", ascending(SearchedDataset::getCreatedAt),
+            "title_string desc", descending(SearchedDataset::getTitle),
+            "title_string asc", ascending(SearchedDataset::getTitle),
+            EXPORT_SORT, BY_ID
+    );
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> documentIds = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, Map<String, Posting>> postings = new HashMap<>();
+    private final Map<String, int[]> orders = new ConcurrentHashMap<>();
+    private volatile Map<String, String> facetTitles = Map.of();
+
+    /**
+     * Sets the facet labels to the titles CKAN reports in {@code search_facets}, so local
+     * responses label facets the way CKAN responses do. Facets without a title keep their key.
+     */
+    public void titleFacets(Map<String, String> titles) {
+        facetTitles = Map.copyOf(titles);
+    }
+
+    public void upsert(CkanPackage dataset) {
+        var document = new Document(PackagesSearchResponseMapper.from(dataset), facetValues(
+                dataset));
+
+        lock.writeLock().lock();
+        try {
+            var documentId = documentIds.get(document.dataset().getId());
+            if (documentId != null && isNewer(documents.get(documentId), document)) {
+                return;
+            }
+            if (documentId != null) {
+                removePostings(documentId);
+                documents.set(documentId, document);
+            } else {
+                documentId = live.nextClearBit(0);
+                documentIds.put(document.dataset().getId(), documentId);
+                if (documentId == documents.size()) {
+                    documents.add(document);
+                } else {
+                    documents.set(documentId, document);
+                }
+            }
+
+            for (var facet : document.facetValues().entrySet()) {
+                var values = postings.computeIfAbsent(facet.getKey(), key -> new HashMap<>());
+                for (var value : facet.getValue().entrySet()) {
+                    values.computeIfAbsent(value.getKey(), key -> new Posting(new BitSet()))
+                            .set(documentId, value.getValue());
+                }
+            }
+            live.set(documentId);
+            orders.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            var documentId = documentIds.remove(id);
+            if (documentId == null) {
+                return false;
+            }
+
+            removePostings(documentId);
+            documents.set(documentId, null);
+            live.clear(documentId);
+            orders.clear();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<String> ids() {
+        lock.readLock().lock();
+        try {
+            return Set.copyOf(documentIds.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean canAnswer(DatasetSearchQuery normalizedQuery) {
+        if (normalizedQuery.getQuery() != null || !SORTS.containsKey(normalizedQuery.getSort())) {
+            return false;
+        }
+
+        for (var facet : normalizedQuery.getFacets()) {
+            if (isCkanFacet(facet) && !FACETS.contains(facet.getFacet())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public DatasetsSearchResponse search(DatasetSearchQuery normalizedQuery) {
+        lock.readLock().lock();
+        try {
+            var matches = matches(normalizedQuery);
+            var count = matches.cardinality();
+
+            return DatasetsSearchResponse.builder()
+                    .count(count)
+                    .facetGroups(List.of(facetGroup(matches)))
+                    .results(results(matches, normalizedQuery.getSort(), normalizedQuery
+                            .getStart(), normalizedQuery.getRows()))
+                    .facetGroupCount(Map.of(CKAN_FACET_GROUP, count))
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<SearchedDataset> export(DatasetSearchQuery normalizedQuery) {
+        lock.readLock().lock();
+        try {
+            return results(matches(normalizedQuery), EXPORT_SORT, 0, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet matches(DatasetSearchQuery query) {
+        var and = DatasetSearchQuery.OperatorEnum.AND.equals(query.getOperator());
+        var selected = new TreeMap<String, List<String>>();
+        for (var facet : query.getFacets()) {
+            if (isCkanFacet(facet)) {
+                selected.computeIfAbsent(facet.getFacet(), key -> new ArrayList<>())
+                        .add(facet.getValue());
+            }
+        }
+
+        var matches = (BitSet) live.clone();
+        for (var facet : selected.entrySet()) {
+            var values = postings.getOrDefault(facet.getKey(), Map.of());
+            BitSet facetMatches = null;
+            for (var value : facet.getValue()) {
+                var posting = values.get(value);
+                var documents = posting != null ? posting.documents() : new BitSet();
+                if (facetMatches == null) {
+                    facetMatches = (BitSet) documents.clone();
+                } else if (and) {
+                    facetMatches.and(documents);
+                } else {
+                    facetMatches.or(documents);
+                }
+            }
+            matches.and(facetMatches);
+        }
+        return matches;
+    }
+
+    private FacetGroup facetGroup(BitSet matches) {
+        var scratch = new BitSet(live.length());
+        var facets = new ArrayList<Facet>(FACETS.size());
+
+        for (var facet : FACETS) {
+            var counts = new ArrayList<FacetCount>();
+            for (var posting : postings.getOrDefault(facet, Map.of()).entrySet()) {
+                scratch.clear();
+                scratch.or(posting.getValue().documents());
+                scratch.and(matches);
+                var count = scratch.cardinality();
+                if (count > 0) {
+                    counts.add(new FacetCount(posting.getKey(), posting.getValue().label(), count));
+                }
+            }
+            if (counts.isEmpty()) {
+                continue;
+            }
+
+            counts.sort(comparing(FacetCount::count, reverseOrder())
+                    .thenComparing(FacetCount::value));
+            var values = new ArrayList<ValueLabel>(counts.size());
+            for (var count : counts) {
+                values.add(ValueLabel.builder()
+                        .value(count.value())
+                        .label(count.label())
+                        .build());
+            }
+            facets.add(Facet.builder()
+                    .key(facet)
+                    .label(facetTitles.getOrDefault(facet, facet))
+                    .values(values)
+                    .build());
+        }
+
+        return FacetGroup.builder()
+                .key(CKAN_FACET_GROUP)
+                .label("DCAT-AP")
+                .facets(facets)
+                .build();
+    }
+
+    private List<SearchedDataset> results(BitSet matches, String sort, int start, int rows) {
+        var results = new ArrayList<SearchedDataset>(Math.min(rows, matches.cardinality()));
+        var skipped = 0;
+
+        for (var documentId : orders.computeIfAbsent(sort, this::order)) {
+            if (results.size() >= rows) {
+                break;
+            }
+            if (!matches.get(documentId)) {
+                continue;
+            }
+            if (skipped < start) {
+                skipped++;
+                continue;
+            }
+            results.add(documents.get(documentId).dataset().toBuilder().build());
+        }
+        return results;
+    }
+
+    private int[] order(String sort) {
+        var comparator = SORTS.get(sort).thenComparing(BY_ID);
+        return live.stream()
+                .boxed()
+                .sorted(comparing(documentId -> documents.get(documentId).dataset(), comparator))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private void removePostings(int documentId) {
+        var document = documents.get(documentId);
+        for (var facet : document.facetValues().entrySet()) {
+            var values = postings.get(facet.getKey());
+            for (var value : facet.getValue().keySet()) {
+                var posting = values.get(value);
+                posting.documents().clear(documentId);
+                if (posting.documents().isEmpty()) {
+                    values.remove(value);
+                }
+            }
+        }
+    }
+
+    private static boolean isNewer(Document indexed, Document document) {
+        var indexedModifiedAt = indexed.dataset().getModifiedAt();
+        var modifiedAt = document.dataset().getModifiedAt();
+        return indexedModifiedAt != null && modifiedAt != null && indexedModifiedAt.isAfter(
+                modifiedAt);
+    }
+
+    private static boolean isCkanFacet(DatasetSearchQueryFacet facet) {
+        return Objects.equals(CKAN_FACET_GROUP, facet.getFacetGroup())
+                && facet.getFacet() != null
+                && !facet.getFacet().isBlank()
+                && facet.getValue() != null
+                && !facet.getValue().isBlank();
+    }
+
+    private static Map<String, Map<String, String>> facetValues(CkanPackage dataset) {
+        var values = new LinkedHashMap<String, Map<String, String>>();
+        add(values, "access_rights", dataset.getAccessRights());
+        if (dataset.getTheme() != null) {
+            dataset.getTheme().forEach(theme -> add(values, "theme", theme));
+        }
+        if (dataset.getTags() != null) {
+            dataset.getTags().forEach(tag -> {
+                if (tag != null) {
+                    add(values, "tags", tag.getName(), tag.getDisplayName());
+                }
+            });
+        }
+        add(values, "spatial_uri", dataset.getSpatialUri());
+        if (dataset.getOrganization() != null) {
+            add(values, "organization", dataset.getOrganization().getName(), dataset
+                    .getOrganization().getTitle());
+        }
+        add(values, "publisher_name", dataset.getPublisherName(), dataset.getPublisherName());
+        if (dataset.getResources() != null) {
+            dataset.getResources().forEach(resource -> {
+                if (resource != null) {
+                    add(values, "res_format", resource.getFormat());
+                }
+            });
+        }
+        return values;
+    }
+
+    private static void add(Map<String, Map<String, String>> values, String facet,
+            CkanValueLabel value) {
+        if (value != null) {
+            add(values, facet, value.getName(), value.getDisplayName());
+        }
+    }
+
+    private static void add(Map<String, Map<String, String>> values, String facet, String value,
+            String label) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        values.computeIfAbsent(facet, key -> new LinkedHashMap<>())
+                .putIfAbsent(value, label != null ? label : value);
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<SearchedDataset> ascending(
+            Function<SearchedDataset, T> field) {
+        return comparing(field, nullsLast(naturalOrder()));
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<SearchedDataset> descending(
+            Function<SearchedDataset, T> field) {
+        return comparing(field, nullsLast(reverseOrder()));
+    }
+
+    private record Document(
+                            SearchedDataset dataset,
+                            Map<String, Map<String, String>> facetValues
+    ) {
+    }
+
+    private static final class Posting {
+
+        private final BitSet documents;
+        private String label;
+
+        private Posting(BitSet documents) {
+            this.documents = documents;
+        }
+
+        private void set(int documentId, String label) {
+            documents.set(documentId);
+            this.label = label;
+        }
+
+        private BitSet documents() {
+            return documents;
+        }
+
+        private String label() {
+            return label;
+        }
+    }
+
+    private record FacetCount(String value, String label, int count) {
+    }
+}
@@ -0,0 +1,88 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.joining;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import lombok.experimental.UtilityClass;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+@UtilityClass
+public class DatasetSearchQueryNormalizer {
+
+    private final String DEFAULT_SORT = "score desc, metadata_modified desc";
+    private final Integer DEFAULT_ROWS = 10;
+    private final Integer DEFAULT_START = 0;
+    private final String FIELD_SEPARATOR = "\u001f";
+    private final String FACET_SEPARATOR = "\u001e";
+
+    private final Comparator<DatasetSearchQueryFacet> FACET_ORDER = comparing(
+            DatasetSearchQueryFacet::getFacetGroup, nullsFirst(naturalOrder()))
+            .thenComparing(DatasetSearchQueryFacet::getFacet, nullsFirst(naturalOrder()))
+            .thenComparing(DatasetSearchQueryFacet::getValue, nullsFirst(naturalOrder()));
+
+    public DatasetSearchQuery normalize(DatasetSearchQuery query) {
+        var facets = ofNullable(query.getFacets())
+                .orElseGet(List::of)
+                .stream()
+                .filter(Objects::nonNull)
+                .map(DatasetSearchQueryNormalizer::trim)
+                .filter(it -> it.getFacetGroup() != null && it.getValue() != null)
+                .distinct()
+                .sorted(FACET_ORDER)
+                .toList();
+
+        return query.toBuilder()
+                .query(StringUtils.trimToNull(query.getQuery()))
+                .facets(facets)
+                .sort(ofNullable(StringUtils.trimToNull(query.getSort())).orElse(DEFAULT_SORT))
+                .rows(ofNullable(query.getRows()).orElse(DEFAULT_ROWS))
+                .start(ofNullable(query.getStart()).orElse(DEFAULT_START))
+                .operator(ofNullable(query.getOperator()).orElse(
+                        DatasetSearchQuery.OperatorEnum.OR))
+                .build();
+    }
+
+    public String hashKey(DatasetSearchQuery normalizedQuery) {
+        var facets = normalizedQuery.getFacets().stream()
+                .map(it -> String.join(
+                        FIELD_SEPARATOR,
+                        it.getFacetGroup(),
+                        Objects.toString(it.getFacet(), ""),
+                        it.getValue()
+                ))
+                .collect(joining(FACET_SEPARATOR));
+
+        var canonicalQuery = String.join(
+                FIELD_SEPARATOR,
+                Objects.toString(normalizedQuery.getQuery(), ""),
+                normalizedQuery.getSort(),
+                normalizedQuery.getRows().toString(),
+                normalizedQuery.getStart().toString(),
+                normalizedQuery.getOperator().value(),
+                facets
+        );
+
+        return Hashes.sha256(canonicalQuery);
+    }
+
+    private DatasetSearchQueryFacet trim(DatasetSearchQueryFacet facet) {
+        return DatasetSearchQueryFacet.builder()
+                .facetGroup(StringUtils.trimToNull(facet.getFacetGroup()))
+                .facet(StringUtils.trimToNull(facet.getFacet()))
+                .value(StringUtils.trimToNull(facet.getValue()))
+                .build();
+    }
+}
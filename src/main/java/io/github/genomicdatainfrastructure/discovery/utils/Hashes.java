@@ -0,0 +1,28 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import lombok.experimental.UtilityClass;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+@UtilityClass
+public class Hashes {
+
+    private final String HASH_ALGORITHM = "SHA-256";
+
+    public String sha256(String value) {
+        try {
+            var digest = MessageDigest.getInstance(HASH_ALGORITHM).digest(value.getBytes(UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.subscription.UniEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+public class HedgedRequests {
+
+    private static final int LATENCY_WINDOW = 200;
+    private static final int MINIMUM_SAMPLES = 20;
+    private static final double MAXIMUM_BURST = 10;
+
+    private final double percentile;
+    private final Duration minimumDelay;
+    private final double budget;
+    private final Runnable onHedge;
+    private final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW, MINIMUM_SAMPLES);
+    private double tokens;
+
+    public HedgedRequests(double percentile, Duration minimumDelay, double budget,
+            Runnable onHedge) {
+        this.percentile = percentile;
+        this.minimumDelay = minimumDelay;
+        this.budget = budget;
+        this.onHedge = onHedge;
+    }
+
+    public <T> Uni<T> execute(Supplier<Uni<T>> primary, Supplier<Uni<T>> hedge) {
+        return Uni.createFrom().deferred(() -> {
+            deposit();
+            var delay = observedLatency()
+                    .map(it -> it.compareTo(minimumDelay) < 0 ? minimumDelay : it);
+            var started = System.nanoTime();
+            if (delay.isEmpty()) {
+                return primary.get()
+                        .onTermination()
+                        .invoke(() -> latencies.record(System.nanoTime() - started));
+            }
+
+            return Uni.createFrom().<T>emitter(emitter -> {
+                var race = new Race<T>(emitter);
+                emitter.onTermination(race::cancel);
+                race.start(primary);
+                race.add(Uni.createFrom()
+                        .voidItem()
+                        .onItem()
+                        .delayIt()
+                        .by(delay.get())
+                        .subscribe()
+                        .with(ignored -> {
+                            if (race.isRunning() && withdraw()) {
+                                onHedge.run();
+                                race.start(hedge);
+                            }
+                        }));
+            })
+                    .onTermination()
+                    .invoke(() -> latencies.record(System.nanoTime() - started));
+        });
+    }
+
+    public Optional<Duration> observedLatency() {
+        return latencies.percentile(percentile);
+    }
+
+    private synchronized void deposit() {
+        tokens = Math.min(MAXIMUM_BURST, tokens + budget);
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private class Race<T> {
+
+        private final UniEmitter<? super T> emitter;
+        private final List<Cancellable> subscriptions = new ArrayList<>();
+        private int inFlight;
+        private boolean done;
+
+        Race(UniEmitter<? super T> emitter) {
+            this.emitter = emitter;
+        }
+
+        void start(Supplier<Uni<T>> attempt) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                inFlight++;
+            }
+
+            add(attempt.get()
+                    .subscribe()
+                    .with(
+                            item -> {
+                                if (complete()) {
+                                    emitter.complete(item);
+                                }
+                            },
+                            failure -> {
+                                if (fail()) {
+                                    emitter.fail(failure);
+                                }
+                            }
+                    ));
+        }
+
+        void add(Cancellable subscription) {
+            synchronized (this) {
+                if (!done) {
+                    subscriptions.add(subscription);
+                    return;
+                }
+            }
+            subscription.cancel();
+        }
+
+        synchronized boolean isRunning() {
+            return !done;
+        }
+
+        void cancel() {
+            List<Cancellable> pending;
+            synchronized (this) {
+                done = true;
+                pending = List.copyOf(subscriptions);
+                subscriptions.clear();
+            }
+            pending.forEach(Cancellable::cancel);
+        }
+
+        private synchronized boolean complete() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+
+        private synchronized boolean fail() {
+            inFlight--;
+            if (done || inFlight > 0) {
+                return false;
+            }
+            done = true;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.http.Outcome;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.WebApplicationException;
+import lombok.experimental.UtilityClass;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+@UtilityClass
+public class Instrumentation {
+
+    private final String UPSTREAM_REQUESTS = "discovery.upstream.requests";
+    private final String STAGES = "discovery.stages";
+    private final String MAPPINGS = "discovery.mappings";
+    private final String NONE = "none";
+    private final String SUCCESS = "SUCCESS";
+    private final String FAILURE = "FAILURE";
+    private final String CANCELLED = "CANCELLED";
+    private final Duration MINIMUM_MAPPING_DURATION = Duration.ofNanos(1_000);
+
+    public <T> Uni<T> upstream(
+            MeterRegistry meterRegistry,
+            String client,
+            String operation,
+            Supplier<Uni<T>> call
+    ) {
+        var tags = Tags.of("client", client, "operation", operation);
+
+        return Uni.createFrom().deferred(() -> {
+            var sample = Timer.start(meterRegistry);
+            var stopwatch = ServerTiming.stopwatch(client, operation);
+            return call.get()
+                    .onItemOrFailure()
+                    .invoke((item, failure) -> {
+                        stopwatch.stop();
+                        sample.stop(timer(meterRegistry, UPSTREAM_REQUESTS, tags.and(
+                                upstreamOutcome(failure))));
+                    })
+                    .onCancellation()
+                    .invoke(() -> sample.stop(timer(meterRegistry, UPSTREAM_REQUESTS, tags.and(
+                            "outcome", CANCELLED, "status", NONE, "exception", NONE))));
+        });
+    }
+
+    public <T> Uni<T> stage(MeterRegistry meterRegistry, String stage, Supplier<Uni<T>> call) {
+        var tags = Tags.of("stage", stage);
+
+        return Uni.createFrom().deferred(() -> {
+            var sample = Timer.start(meterRegistry);
+            var stopwatch = ServerTiming.stopwatch("stage", stage);
+            return call.get()
+                    .onItemOrFailure()
+                    .invoke((item, failure) -> {
+                        stopwatch.stop();
+                        sample.stop(timer(meterRegistry, STAGES, tags.and(outcome(failure))));
+                    })
+                    .onCancellation()
+                    .invoke(() -> sample.stop(timer(meterRegistry, STAGES, tags.and(
+                            "outcome", CANCELLED, "exception", NONE))));
+        });
+    }
+
+    public <T> T mapping(MeterRegistry meterRegistry, String mapper, Supplier<T> mapping) {
+        var sample = Timer.start(meterRegistry);
+        var stopwatch = ServerTiming.stopwatch("mapping", mapper);
+        Throwable failure = null;
+        try {
+            return mapping.get();
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            stopwatch.stop();
+            sample.stop(Timer.builder(MAPPINGS)
+                    .tags(Tags.of("mapper", mapper).and(outcome(failure)))
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MINIMUM_MAPPING_DURATION)
+                    .register(meterRegistry));
+        }
+    }
+
+    private Timer timer(MeterRegistry meterRegistry, String name, Tags tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Tags upstreamOutcome(Throwable failure) {
+        if (failure == null) {
+            return Tags.of("outcome", SUCCESS, "status", "2xx", "exception", NONE);
+        }
+        if (failure instanceof WebApplicationException exception
+                && exception.getResponse() != null) {
+            var status = exception.getResponse().getStatus();
+            return Tags.of(
+                    "outcome", Outcome.forStatus(status).name(),
+                    "status", String.valueOf(status),
+                    "exception", failure.getClass().getSimpleName()
+            );
+        }
+        return Tags.of("outcome", Outcome.UNKNOWN.name(), "status", NONE, "exception", failure
+                .getClass().getSimpleName());
+    }
+
+    private Tags outcome(Throwable failure) {
+        return failure == null
+                ? Tags.of("outcome", SUCCESS, "exception", NONE)
+                : Tags.of("outcome", FAILURE, "exception", failure.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,39 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+public class LatencyWindow {
+
+    private final int minimumSamples;
+    private final long[] latencies;
+    private int samples;
+    private int next;
+
+    public LatencyWindow(int windowSize, int minimumSamples) {
+        this.minimumSamples = minimumSamples;
+        this.latencies = new long[windowSize];
+    }
+
+    public synchronized void record(long latency) {
+        latencies[next] = latency;
+        next = (next + 1) % latencies.length;
+        samples = Math.min(samples + 1, latencies.length);
+    }
+
+    public synchronized Optional<Duration> percentile(double percentile) {
+        if (samples < minimumSamples) {
+            return Optional.empty();
+        }
+
+        var sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        var index = (int) Math.ceil(percentile * samples) - 1;
+        return Optional.of(Duration.ofNanos(sorted[Math.max(index, 0)]));
+    }
+}
@@ -12,16 +12,12 @@ import io.github.genomicdatainfrastructure.discovery.model.ValueLabel;
 import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.*;
 import lombok.experimental.UtilityClass;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-
-import org.apache.commons.lang3.ObjectUtils;
-
-import java.time.format.DateTimeFormatter;
-import java.time.LocalDateTime;
-
-import static java.util.Optional.ofNullable;
 
 @UtilityClass
 public class PackagesSearchResponseMapper {
@@ -33,80 +29,65 @@ public class PackagesSearchResponseMapper {
     );
 
     public DatasetsSearchResponse from(PackagesSearchResponse response) {
-        var count = count(response.getResult());
-        var facetGroupCount = Map.<String, Integer>of();
-
-        if (count != null) {
-            facetGroupCount = Map.of(CKAN_FACET_GROUP, count);
-        }
+        var result = response.getResult();
+        var count = result != null ? result.getCount() : null;
+        var facetGroupCount = count != null
+                ? Map.of(CKAN_FACET_GROUP, count)
+                : Map.<String, Integer>of();
 
         return DatasetsSearchResponse.builder()
                 .count(count)
-                .facetGroups(facetGroups(response.getResult()))
-                .results(results(response.getResult()))
+                .facetGroups(List.of(facetGroup(result)))
+                .results(results(result))
                 .facetGroupCount(facetGroupCount)
                 .build();
     }
 
-    private Integer count(PackagesSearchResult result) {
-        return ofNullable(result)
-                .map(PackagesSearchResult::getCount)
-                .orElse(null);
+    public SearchedDataset from(CkanPackage dataset) {
+        return result(dataset, new HashMap<>(2));
     }
 
-    private List<FacetGroup> facetGroups(PackagesSearchResult result) {
-        var nonNullSearchFacets = ofNullable(result)
-                .map(PackagesSearchResult::getSearchFacets)
-                .orElseGet(Map::of);
+    private FacetGroup facetGroup(PackagesSearchResult result) {
+        var searchFacets = result != null ? result.getSearchFacets() : null;
+        var facets = new ArrayList<Facet>(searchFacets != null ? searchFacets.size() : 0);
 
-        return List.of(facetGroup(nonNullSearchFacets));
-    }
+        if (searchFacets != null) {
+            for (var entry : searchFacets.entrySet()) {
+                facets.add(facet(entry.getKey(), entry.getValue()));
+            }
+        }
 
-    private FacetGroup facetGroup(Map<String, CkanFacet> facets) {
         return FacetGroup.builder()
                 .key(CKAN_FACET_GROUP)
                 .label("DCAT-AP")
-                .facets(facets.entrySet().stream()
-                        .map(PackagesSearchResponseMapper::facet)
-                        .toList())
+                .facets(facets)
                 .build();
     }
 
-    private Facet facet(Map.Entry<String, CkanFacet> entry) {
-        var key = entry.getKey();
-        var facet = entry.getValue();
-        var values = ofNullable(facet.getItems())
-                .orElseGet(List::of)
-                .stream()
-                .map(value -> ValueLabel.builder()
-                        .value(value.getName())
-                        .label(value.getDisplayName())
-                        .build()
-                )
-                .toList();
-
+    private Facet facet(String key, CkanFacet facet) {
         return Facet.builder()
                 .key(key)
                 .label(facet.getTitle())
-                .values(values)
+                .values(values(facet.getItems()))
                 .build();
     }
 
     private List<SearchedDataset> results(PackagesSearchResult result) {
-        var nonNullPackages = ofNullable(result)
-                .map(PackagesSearchResult::getResults)
-                .filter(ObjectUtils::isNotEmpty)
-                .orElseGet(List::of);
-
-        return nonNullPackages.stream()
-                .map(PackagesSearchResponseMapper::result)
-                .toList();
+        var packages = result != null ? result.getResults() : null;
+        if (packages == null || packages.isEmpty()) {
+            return List.of();
+        }
+
+        var dates = new HashMap<String, LocalDateTime>();
+        var datasets = new ArrayList<SearchedDataset>(packages.size());
+        for (var dataset : packages) {
+            datasets.add(result(dataset, dates));
+        }
+        return datasets;
     }
 
-    private SearchedDataset result(CkanPackage dataset) {
-        var catalogue = ofNullable(dataset.getOrganization())
-                .map(CkanOrganization::getTitle)
-                .orElse(null);
+    private SearchedDataset result(CkanPackage dataset, Map<String, LocalDateTime> dates) {
+        var organization = dataset.getOrganization();
 
         return SearchedDataset.builder()
                 .id(dataset.getId())
@@ -114,34 +95,39 @@ public class PackagesSearchResponseMapper {
                 .title(dataset.getTitle())
                 .description(dataset.getNotes())
                 .themes(values(dataset.getTheme()))
-                .catalogue(catalogue)
-                .modifiedAt(parse(dataset.getMetadataModified()))
-                .createdAt(parse(dataset.getMetadataCreated()))
+                .catalogue(organization != null ? organization.getTitle() : null)
+                .modifiedAt(parse(dataset.getMetadataModified(), dates))
+                .createdAt(parse(dataset.getMetadataCreated(), dates))
                 .build();
     }
 
-    private LocalDateTime parse(String date) {
-        return ofNullable(date)
-                .map(it -> LocalDateTime.parse(it, DATE_FORMATTER))
-                .orElse(null);
+    private LocalDateTime parse(String date, Map<String, LocalDateTime> dates) {
+        if (date == null) {
+            return null;
+        }
+
+        var parsed = dates.get(date);
+        if (parsed == null) {
+            parsed = LocalDateTime.parse(date, DATE_FORMATTER);
+            dates.put(date, parsed);
+        }
+        return parsed;
     }
 
     private List<ValueLabel> values(List<CkanValueLabel> values) {
-        return ofNullable(values)
-                .orElseGet(List::of)
-                .stream()
-                .map(PackagesSearchResponseMapper::value)
-                .filter(Objects::nonNull)
-                .toList();
-    }
+        if (values == null || values.isEmpty()) {
+            return List.of();
+        }
 
-    private ValueLabel value(CkanValueLabel value) {
-        return ofNullable(value)
-                .filter(Objects::nonNull)
-                .map(it -> ValueLabel.builder()
-                        .value(it.getName())
-                        .label(it.getDisplayName())
-                        .build())
-                .orElse(null);
+        var mapped = new ArrayList<ValueLabel>(values.size());
+        for (var value : values) {
+            if (value != null) {
+                mapped.add(ValueLabel.builder()
+                        .value(value.getName())
+                        .label(value.getDisplayName())
+                        .build());
+            }
+        }
+        return mapped;
     }
 }
@@ -0,0 +1,138 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanFacet;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanValueLabel;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import lombok.experimental.UtilityClass;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.util.Optional.ofNullable;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+@UtilityClass
+public class PackagesSearchResponseMerger {
+
+    private final String DEFAULT_SORT = "score desc, metadata_modified desc";
+    private final String MATCH_ALL = "*:*";
+    private final String SCORE = "score";
+    private final String DESCENDING = "desc";
+    private final Map<String, Function<CkanPackage, String>> SORT_FIELDS = Map.of(
+            "id", CkanPackage::getId,
+            "name", CkanPackage::getName,
+            "title_string", CkanPackage::getTitle,
+            "metadata_created", CkanPackage::getMetadataCreated,
+            "metadata_modified", CkanPackage::getMetadataModified
+    );
+
+    public Optional<Comparator<CkanPackage>> order(String sort, String q) {
+        var matchesAll = isBlank(q) || MATCH_ALL.equals(q.trim());
+        Comparator<CkanPackage> order = (left, right) -> 0;
+
+        for (var clause : ofNullable(sort).filter(it -> !isBlank(it)).orElse(DEFAULT_SORT)
+                .split(",")) {
+            var parts = clause.trim().split("\\s+");
+            if (parts.length != 2) {
+                return Optional.empty();
+            }
+
+            if (SCORE.equals(parts[0])) {
+                if (!matchesAll) {
+                    return Optional.empty();
+                }
+                continue;
+            }
+
+            var field = SORT_FIELDS.get(parts[0]);
+            if (field == null) {
+                return Optional.empty();
+            }
+
+            var ascending = Comparator.<String>naturalOrder();
+            order = order.thenComparing(field, Comparator.nullsLast(DESCENDING.equalsIgnoreCase(
+                    parts[1]) ? ascending.reversed() : ascending));
+        }
+        return Optional.of(order);
+    }
+
+    public PackagesSearchResponse merge(
+            List<PackagesSearchResponse> responses,
+            Comparator<CkanPackage> order,
+            int start,
+            int rows
+    ) {
+        var results = responses.stream()
+                .map(PackagesSearchResponse::getResult)
+                .filter(Objects::nonNull)
+                .toList();
+
+        var packages = results.stream()
+                .map(PackagesSearchResult::getResults)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .sorted(order)
+                .skip(start)
+                .limit(rows)
+                .toList();
+
+        return PackagesSearchResponse.builder()
+                .result(PackagesSearchResult.builder()
+                        .count(results.stream()
+                                .map(PackagesSearchResult::getCount)
+                                .filter(Objects::nonNull)
+                                .mapToInt(Integer::intValue)
+                                .sum())
+                        .results(packages)
+                        .searchFacets(searchFacets(results))
+                        .build())
+                .build();
+    }
+
+    private Map<String, CkanFacet> searchFacets(List<PackagesSearchResult> results) {
+        var titles = new LinkedHashMap<String, String>();
+        var items = new LinkedHashMap<String, Map<String, CkanValueLabel>>();
+
+        for (var result : results) {
+            ofNullable(result.getSearchFacets()).orElseGet(Map::of).forEach((key, facet) -> {
+                titles.putIfAbsent(key, facet.getTitle());
+                var values = items.computeIfAbsent(key, ignored -> new LinkedHashMap<>());
+                ofNullable(facet.getItems()).orElseGet(List::of).stream()
+                        .filter(Objects::nonNull)
+                        .forEach(item -> values.merge(item.getName(), item, (left,
+                                right) -> CkanValueLabel.builder()
+                                        .name(left.getName())
+                                        .displayName(left.getDisplayName())
+                                        .count(count(left) + count(right))
+                                        .build()));
+            });
+        }
+
+        var searchFacets = new LinkedHashMap<String, CkanFacet>();
+        items.forEach((key, values) -> searchFacets.put(key, CkanFacet.builder()
+                .title(titles.get(key))
+                .items(values.values().stream()
+                        .sorted(Comparator.comparingInt(PackagesSearchResponseMerger::count)
+                                .reversed()
+                                .thenComparing(CkanValueLabel::getName, Comparator.nullsLast(
+                                        Comparator.naturalOrder())))
+                        .toList())
+                .build()));
+        return searchFacets;
+    }
+
+    private int count(CkanValueLabel item) {
+        return item.getCount() != null ? item.getCount() : 0;
+    }
+}
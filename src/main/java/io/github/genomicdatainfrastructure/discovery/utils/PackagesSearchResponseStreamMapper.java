@@ -0,0 +1,165 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanFacet;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+public class PackagesSearchResponseStreamMapper {
+
+    private static final String RESULT = "result";
+    private static final String COUNT = "count";
+    private static final String RESULTS = "results";
+    private static final String SEARCH_FACETS = "search_facets";
+    private static final TypeReference<Map<String, CkanFacet>> SEARCH_FACETS_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final JsonGenerator generator;
+
+    private TokenBuffer captured;
+    private int capturedDepth;
+    private boolean capturingFacets;
+    private Integer count;
+    private Map<String, CkanFacet> searchFacets;
+
+    public PackagesSearchResponseStreamMapper(ObjectMapper objectMapper) {
+        try {
+            this.objectMapper = objectMapper;
+            this.parser = objectMapper.createNonBlockingByteArrayParser();
+            this.generator = objectMapper.createGenerator(output);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart(RESULTS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public byte[] map(byte[] chunk) {
+        try {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(chunk, 0,
+                    chunk.length);
+            drain();
+            return flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public byte[] complete() {
+        try {
+            parser.getNonBlockingInputFeeder().endOfInput();
+            drain();
+            generator.writeEndArray();
+
+            var summary = objectMapper.valueToTree(PackagesSearchResponseMapper.from(
+                    PackagesSearchResponse.builder()
+                            .result(PackagesSearchResult.builder()
+                                    .count(count)
+                                    .searchFacets(searchFacets)
+                                    .build())
+                            .build()
+            ));
+            var fields = summary.fields();
+            while (fields.hasNext()) {
+                var field = fields.next();
+                if (!RESULTS.equals(field.getKey())) {
+                    generator.writeFieldName(field.getKey());
+                    generator.writeTree(field.getValue());
+                }
+            }
+            generator.writeEndObject();
+            generator.close();
+            return flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (captured != null) {
+                capture(token);
+            } else if (token == JsonToken.START_OBJECT) {
+                startCapture();
+            } else if (token == JsonToken.VALUE_NUMBER_INT
+                    && COUNT.equals(parser.currentName())
+                    && isResult(parser.getParsingContext())) {
+                count = parser.getIntValue();
+            }
+        }
+    }
+
+    private void startCapture() throws IOException {
+        var parent = parser.getParsingContext().getParent();
+        var isPackage = parent.inArray()
+                && RESULTS.equals(parent.getParent().getCurrentName())
+                && isResult(parent.getParent());
+        var isSearchFacets = SEARCH_FACETS.equals(parent.getCurrentName()) && isResult(parent);
+
+        if (isPackage || isSearchFacets) {
+            captured = new TokenBuffer(parser);
+            capturedDepth = 0;
+            capturingFacets = isSearchFacets;
+            capture(JsonToken.START_OBJECT);
+        }
+    }
+
+    private void capture(JsonToken token) throws IOException {
+        captured.copyCurrentEvent(parser);
+        if (token.isStructStart()) {
+            capturedDepth++;
+        } else if (token.isStructEnd()) {
+            capturedDepth--;
+        }
+        if (capturedDepth > 0) {
+            return;
+        }
+
+        try (var capturedParser = captured.asParser(objectMapper)) {
+            if (capturingFacets) {
+                searchFacets = objectMapper.readValue(capturedParser, SEARCH_FACETS_TYPE);
+            } else {
+                var dataset = objectMapper.readValue(capturedParser, CkanPackage.class);
+                generator.writeObject(PackagesSearchResponseMapper.from(dataset));
+            }
+        }
+        captured = null;
+    }
+
+    private byte[] flush() throws IOException {
+        generator.flush();
+        var bytes = output.toByteArray();
+        output.reset();
+        return bytes;
+    }
+
+    private static boolean isResult(JsonStreamContext context) {
+        var parent = context.getParent();
+        return context.inObject()
+                && parent != null
+                && parent.inObject()
+                && parent.getParent().inRoot()
+                && RESULT.equals(parent.getCurrentName());
+    }
+}
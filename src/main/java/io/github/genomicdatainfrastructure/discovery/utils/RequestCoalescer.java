@@ -0,0 +1,41 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+public class RequestCoalescer<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlightRequests = new ConcurrentHashMap<>();
+
+    public Uni<V> execute(K key, Supplier<Uni<V>> request) {
+        return Uni.createFrom().deferred(() -> {
+            var pending = new CompletableFuture<V>();
+            var inFlight = inFlightRequests.putIfAbsent(key, pending);
+            if (inFlight != null) {
+                return Uni.createFrom().completionStage(inFlight);
+            }
+
+            request.get()
+                    .subscribe()
+                    .with(
+                            item -> {
+                                inFlightRequests.remove(key, pending);
+                                pending.complete(item);
+                            },
+                            failure -> {
+                                inFlightRequests.remove(key, pending);
+                                pending.completeExceptionally(failure);
+                            }
+                    );
+            return Uni.createFrom().completionStage(pending);
+        });
+    }
+}
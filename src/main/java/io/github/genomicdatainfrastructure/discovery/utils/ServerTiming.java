@@ -0,0 +1,102 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import io.smallrye.common.vertx.VertxContext;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.BooleanSupplier;
+
+public class ServerTiming {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final String KEY = ServerTiming.class.getName();
+    private static final Stopwatch NOT_TIMED = () -> {
+    };
+    private static final String DURATION = "%s;dur=%.3f";
+    private static final String CACHE = "%s;desc=\"%s\"";
+    private static final String TOTAL = "total";
+
+    private final long startedAt = System.nanoTime();
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private final Map<String, Boolean> caches = new LinkedHashMap<>();
+
+    public static void start() {
+        var context = duplicatedContext();
+        if (context != null) {
+            context.putLocal(KEY, new ServerTiming());
+        }
+    }
+
+    public static ServerTiming finish() {
+        var context = duplicatedContext();
+        if (context == null) {
+            return null;
+        }
+
+        ServerTiming timing = context.getLocal(KEY);
+        context.removeLocal(KEY);
+        return timing;
+    }
+
+    public static Stopwatch stopwatch(String kind, String name) {
+        var timing = current();
+        if (timing == null) {
+            return NOT_TIMED;
+        }
+
+        var started = System.nanoTime();
+        return () -> timing.record(kind + "." + name, System.nanoTime() - started);
+    }
+
+    public static void cache(String cache, BooleanSupplier hit) {
+        var timing = current();
+        if (timing != null) {
+            timing.recordCache(cache, hit.getAsBoolean());
+        }
+    }
+
+    public synchronized String header() {
+        var header = new StringJoiner(", ");
+        durations.forEach((metric, nanos) -> header.add(duration(metric, nanos)));
+        caches.forEach((cache, hit) -> header.add(CACHE.formatted(cache, hit ? "hit" : "miss")));
+        header.add(duration(TOTAL, System.nanoTime() - startedAt));
+        return header.toString();
+    }
+
+    synchronized void record(String metric, long nanos) {
+        durations.merge(metric, nanos, Long::sum);
+    }
+
+    synchronized void recordCache(String cache, boolean hit) {
+        caches.put(cache, hit);
+    }
+
+    private static ServerTiming current() {
+        var context = duplicatedContext();
+        return context == null ? null : context.getLocal(KEY);
+    }
+
+    private static Context duplicatedContext() {
+        var context = Vertx.currentContext();
+        return context != null && VertxContext.isDuplicatedContext(context) ? context : null;
+    }
+
+    private static String duration(String metric, long nanos) {
+        return String.format(Locale.ROOT, DURATION, metric, nanos / 1_000_000.0);
+    }
+
+    @FunctionalInterface
+    public interface Stopwatch {
+
+        void stop();
+    }
+}
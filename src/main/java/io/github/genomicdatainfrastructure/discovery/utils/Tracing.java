@@ -0,0 +1,79 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.utils;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@UtilityClass
+public class Tracing {
+
+    public <T> Uni<T> span(
+            Tracer tracer,
+            String name,
+            Attributes attributes,
+            Function<T, Attributes> resultAttributes,
+            Supplier<Uni<T>> call
+    ) {
+        return Uni.createFrom().emitter(emitter -> {
+            var span = tracer.spanBuilder(name)
+                    .setAllAttributes(attributes)
+                    .startSpan();
+            var ended = new AtomicBoolean();
+            var subscription = new AtomicReference<Cancellable>();
+
+            emitter.onTermination(() -> {
+                if (ended.compareAndSet(false, true)) {
+                    var current = subscription.get();
+                    if (current != null) {
+                        current.cancel();
+                    }
+                    span.end();
+                }
+            });
+
+            try (var ignored = span.makeCurrent()) {
+                subscription.set(call.get()
+                        .subscribe()
+                        .with(
+                                item -> {
+                                    if (ended.compareAndSet(false, true)) {
+                                        span.setAllAttributes(resultAttributes.apply(item));
+                                        span.end();
+                                    }
+                                    emitter.complete(item);
+                                },
+                                failure -> {
+                                    if (ended.compareAndSet(false, true)) {
+                                        fail(span, failure);
+                                    }
+                                    emitter.fail(failure);
+                                }
+                        ));
+            } catch (RuntimeException e) {
+                if (ended.compareAndSet(false, true)) {
+                    fail(span, e);
+                }
+                emitter.fail(e);
+            }
+        });
+    }
+
+    private void fail(Span span, Throwable failure) {
+        span.recordException(failure);
+        span.setStatus(StatusCode.ERROR);
+        span.end();
+    }
+}
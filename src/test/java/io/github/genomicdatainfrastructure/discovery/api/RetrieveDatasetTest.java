@@ -10,6 +10,7 @@ import io.github.genomicdatainfrastructure.discovery.BaseTest;
 import io.quarkus.test.junit.QuarkusTest;
 
 import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 
 @QuarkusTest
@@ -64,4 +65,25 @@ class RetrieveDatasetTest extends BaseTest {
                         "Received: 'Server Error, status code 500' when invoking: Rest Client method: 'io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi#packageShow'"
                 ));
     }
+
+    @Test
+    void retrieves_several_datasets_with_a_result_per_id() {
+        given()
+                .auth()
+                .oauth2(getAccessToken("alice"))
+                .contentType("application/json")
+                .body("""
+                        {"ids": ["e1b3eff9-13eb-48b0-b180-7ecb76b84454", "dummy", "dataset_with_error"]}
+                        """)
+                .when()
+                .post("/api/v1/datasets/retrieve")
+                .then()
+                .statusCode(200)
+                .body("results.id", contains("e1b3eff9-13eb-48b0-b180-7ecb76b84454", "dummy",
+                        "dataset_with_error"))
+                .body("results[0].dataset.id", equalTo("e1b3eff9-13eb-48b0-b180-7ecb76b84454"))
+                .body("results[1].error.status", equalTo(404))
+                .body("results[1].error.detail", equalTo("Dataset dummy not found"))
+                .body("results[2].error.status", equalTo(500));
+    }
 }
@@ -0,0 +1,138 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.api.KeycloakQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.model.KeycloakTokenResponse;
+import jakarta.ws.rs.WebApplicationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+
+class BeaconAuthorizationServiceTest {
+
+    private KeycloakQueryApi keycloakQueryApi;
+    private BeaconAuthorizationService underTest;
+
+    @BeforeEach
+    void setUp() {
+        keycloakQueryApi = mock(KeycloakQueryApi.class);
+        underTest = new BeaconAuthorizationService(
+                keycloakQueryApi,
+                "beaconIdpAlias",
+                100,
+                Duration.ofSeconds(30),
+                Duration.ofSeconds(60),
+                Duration.ofSeconds(30),
+                new SimpleMeterRegistry()
+        );
+    }
+
+    @Test
+    void doesnt_call_keycloak_if_access_token_is_null() {
+        var actual = underTest.retrieveBeaconAuthorization(null).await().indefinitely();
+
+        assertThat(actual).isNull();
+        verify(keycloakQueryApi, never()).retriveIdpTokens(any(), any());
+    }
+
+    @Test
+    void reuses_beacon_authorization_of_the_same_access_token() {
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .expiresIn(300)
+                        .build()));
+
+        var first = underTest.retrieveBeaconAuthorization("dummy").await().indefinitely();
+        var second = underTest.retrieveBeaconAuthorization("dummy").await().indefinitely();
+
+        assertThat(first).isEqualTo("Bearer beaconAccessToken");
+        assertThat(second).isEqualTo("Bearer beaconAccessToken");
+        verify(keycloakQueryApi, times(1)).retriveIdpTokens(any(), any());
+    }
+
+    @Test
+    void exchanges_token_again_when_it_is_about_to_expire() {
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .expiresIn(10)
+                        .build()));
+
+        underTest.retrieveBeaconAuthorization("dummy").await().indefinitely();
+        underTest.retrieveBeaconAuthorization("dummy").await().indefinitely();
+
+        verify(keycloakQueryApi, times(2)).retriveIdpTokens(any(), any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {400, 401, 403})
+    void caches_unauthorized_responses(Integer statusCode) {
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException(statusCode)));
+
+        var first = underTest.retrieveBeaconAuthorization("dummy").await().indefinitely();
+        var second = underTest.retrieveBeaconAuthorization("dummy").await().indefinitely();
+
+        assertThat(first).isNull();
+        assertThat(second).isNull();
+        verify(keycloakQueryApi, times(1)).retriveIdpTokens(any(), any());
+    }
+
+    @Test
+    void doesnt_cache_unexpected_errors() {
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException(500)));
+
+        assertThatThrownBy(() -> underTest.retrieveBeaconAuthorization("dummy").await()
+                .indefinitely())
+                .isInstanceOf(WebApplicationException.class);
+        assertThatThrownBy(() -> underTest.retrieveBeaconAuthorization("dummy").await()
+                .indefinitely())
+                .isInstanceOf(WebApplicationException.class);
+
+        verify(keycloakQueryApi, times(2)).retriveIdpTokens(any(), any());
+    }
+
+    @Test
+    void exchanges_token_once_for_concurrent_requests() throws Exception {
+        var exchange = new CompletableFuture<KeycloakTokenResponse>();
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().completionStage(exchange));
+
+        var results = new ArrayList<CompletableFuture<String>>();
+        for (var i = 0; i < 4; i++) {
+            results.add(underTest.retrieveBeaconAuthorization("dummy")
+                    .subscribeAsCompletionStage());
+        }
+        exchange.complete(KeycloakTokenResponse.builder()
+                .accessToken("beaconAccessToken")
+                .expiresIn(300)
+                .build());
+
+        for (var result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("Bearer beaconAccessToken");
+        }
+        verify(keycloakQueryApi, times(1)).retriveIdpTokens(any(), any());
+    }
+}
@@ -0,0 +1,152 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.genomicdatainfrastructure.discovery.exceptions.CircuitBreakerOpenException;
+import io.github.genomicdatainfrastructure.discovery.utils.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.TimeoutException;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class BeaconCallGuardTest {
+
+    private static final String OPERATION = "list_individuals";
+
+    private MutableClock clock;
+    private BeaconCallGuard underTest;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        underTest = new BeaconCallGuard(
+                10,
+                4,
+                0.5,
+                Duration.ofSeconds(30),
+                0.99,
+                3,
+                Duration.ofMillis(250),
+                Duration.ofSeconds(5),
+                new SimpleMeterRegistry(),
+                clock
+        );
+    }
+
+    @Test
+    void fails_fast_while_open_and_closes_after_a_successful_trial() {
+        for (var i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> call(Uni.createFrom().failure(
+                    new WebApplicationException(503))))
+                    .isInstanceOf(WebApplicationException.class);
+        }
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        var calls = new AtomicInteger();
+        assertThatThrownBy(() -> call(Uni.createFrom().item(() -> calls.incrementAndGet())))
+                .isInstanceOf(CircuitBreakerOpenException.class);
+        assertThat(calls).hasValue(0);
+
+        clock.advance(Duration.ofSeconds(30));
+        assertThat(call(Uni.createFrom().item(() -> calls.incrementAndGet()))).isEqualTo(1);
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void lets_local_failures_propagate_without_opening() {
+        for (var i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> call(Uni.createFrom().failure(
+                    new NullPointerException())))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(BeaconCallGuard.isUnavailable(new NullPointerException())).isFalse();
+        assertThat(BeaconCallGuard.isUnavailable(new IllegalArgumentException())).isFalse();
+        assertThat(BeaconCallGuard.isUnavailable(new ProcessingException(
+                new ConnectException()))).isTrue();
+        assertThat(BeaconCallGuard.isUnavailable(new ConnectException())).isTrue();
+        assertThat(BeaconCallGuard.isUnavailable(new WebApplicationException(502))).isTrue();
+    }
+
+    @Test
+    void adapts_the_timeout_to_the_observed_latency() {
+        for (var i = 0; i < 4; i++) {
+            call(Uni.createFrom().item("fast"));
+        }
+        assertThat(underTest.timeout(OPERATION)).isLessThan(Duration.ofSeconds(1));
+
+        assertThatThrownBy(() -> call(Uni.createFrom().item("slow")
+                .onItem()
+                .delayIt()
+                .by(Duration.ofSeconds(2))))
+                .isInstanceOf(TimeoutException.class);
+        assertThat(BeaconCallGuard.isUnavailable(new TimeoutException())).isTrue();
+        assertThat(BeaconCallGuard.isUnavailable(new WebApplicationException(403))).isFalse();
+    }
+
+    @Test
+    void widens_the_timeout_when_latency_steps_up_after_the_window_has_filled() {
+        for (var i = 0; i < 100; i++) {
+            call(Uni.createFrom().item("fast"));
+        }
+        assertThat(underTest.timeout(OPERATION)).isEqualTo(Duration.ofMillis(250));
+
+        var slow = Uni.createFrom().item("slow")
+                .onItem()
+                .delayIt()
+                .by(Duration.ofMillis(400));
+        for (var i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> call(slow)).isInstanceOf(TimeoutException.class);
+        }
+        assertThat(underTest.timeout(OPERATION)).isGreaterThan(Duration.ofMillis(400));
+        assertThat(call(slow)).isEqualTo("slow");
+        assertThat(underTest.state()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private <T> T call(Uni<T> response) {
+        return underTest.guard(OPERATION, () -> response)
+                .await()
+                .indefinitely();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
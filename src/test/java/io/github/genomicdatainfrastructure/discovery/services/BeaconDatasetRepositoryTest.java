@@ -6,18 +6,24 @@ package io.github.genomicdatainfrastructure.discovery.services;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
 import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.*;
 import io.github.genomicdatainfrastructure.discovery.repositories.BeaconDatasetsRepository;
+import io.smallrye.mutiny.Uni;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -37,6 +43,8 @@ import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconI
 import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconResultSet;
 import io.github.genomicdatainfrastructure.discovery.remote.keycloak.api.KeycloakQueryApi;
 import io.github.genomicdatainfrastructure.discovery.remote.keycloak.model.KeycloakTokenResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
 import jakarta.ws.rs.WebApplicationException;
 
 class BeaconDatasetsRepositoryTest {
@@ -55,18 +63,50 @@ class BeaconDatasetsRepositoryTest {
         beaconFilteringTermsService = mock(BeaconFilteringTermsService.class);
 
         underTest = new BeaconDatasetsRepository(
-                ckanQueryApi,
+                new CkanSearchService(
+                        ckanQueryApi,
+                        100,
+                        Duration.ofMinutes(1),
+                        1000,
+                        100,
+                        false,
+                        new CkanHedging(false, 0.95, Duration.ZERO, 0.1, ckanQueryApi,
+                                new SimpleMeterRegistry()),
+                        new SimpleMeterRegistry()
+                ),
                 beaconQueryApi,
-                "beaconIdpAlias",
-                keycloakQueryApi,
-                beaconFilteringTermsService
+                new BeaconAuthorizationService(
+                        keycloakQueryApi,
+                        "beaconIdpAlias",
+                        100,
+                        Duration.ofSeconds(30),
+                        Duration.ofSeconds(60),
+                        Duration.ofSeconds(30),
+                        new SimpleMeterRegistry()
+                ),
+                beaconFilteringTermsService,
+                new BeaconCallGuard(
+                        20,
+                        10,
+                        0.5,
+                        Duration.ofSeconds(30),
+                        0.99,
+                        3,
+                        Duration.ofSeconds(2),
+                        Duration.ofSeconds(20),
+                        new SimpleMeterRegistry()
+                ),
+                100,
+                Duration.ofMinutes(1),
+                new SimpleMeterRegistry(),
+                OpenTelemetry.noop().getTracer("test")
         );
     }
 
     @Test
     void doesnt_call_beacon_if_access_token_is_null() {
-        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any()))
-                .thenReturn(PackagesSearchResponse.builder()
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
                         .result(PackagesSearchResult.builder()
                                 .count(1)
                                 .results(List.of(CkanPackage.builder()
@@ -76,11 +116,11 @@ class BeaconDatasetsRepositoryTest {
                                 )
                                 .build())
 
-                        .build());
+                        .build()));
 
         var query = DatasetSearchQuery.builder()
                 .build();
-        var actual = underTest.search(query, null);
+        var actual = underTest.search(query, null).await().indefinitely();
 
         verify(keycloakQueryApi, never()).retriveIdpTokens(any(), any());
         verify(beaconFilteringTermsService, never()).listFilteringTerms(any());
@@ -106,8 +146,8 @@ class BeaconDatasetsRepositoryTest {
     @ParameterizedTest
     @ValueSource(ints = {400, 401, 403})
     void doesnt_call_beacon_if_keycloak_throws_expected_4xx_errors(Integer statusCode) {
-        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any()))
-                .thenReturn(PackagesSearchResponse.builder()
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
                         .result(PackagesSearchResult.builder()
                                 .count(1)
                                 .results(List.of(CkanPackage.builder()
@@ -117,17 +157,17 @@ class BeaconDatasetsRepositoryTest {
                                 )
                                 .build())
 
-                        .build());
+                        .build()));
 
         when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
-                .thenThrow(new WebApplicationException(statusCode));
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException(statusCode)));
 
         var query = DatasetSearchQuery.builder()
                 .build();
-        var actual = underTest.search(query, "dummy");
+        var actual = underTest.search(query, "dummy").await().indefinitely();
 
         verify(keycloakQueryApi).retriveIdpTokens(any(), any());
-        verify(ckanQueryApi).packageSearch(any(), any(), any(), any(), any(), any(), any());
+        verify(ckanQueryApi).packageSearch(any(), any(), any(), any(), any(), any(), any(), any());
         verify(beaconFilteringTermsService, never()).listFilteringTerms(any());
         verify(beaconQueryApi, never()).listIndividuals(any(), any());
 
@@ -150,8 +190,8 @@ class BeaconDatasetsRepositoryTest {
 
     @Test
     void doesnt_call_beacon_if_there_are_no_beacon_filters() {
-        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any()))
-                .thenReturn(PackagesSearchResponse.builder()
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
                         .result(PackagesSearchResult.builder()
                                 .count(1)
                                 .results(List.of(CkanPackage.builder()
@@ -160,10 +200,10 @@ class BeaconDatasetsRepositoryTest {
                                         .build())
                                 )
                                 .build())
-                        .build());
+                        .build()));
 
         when(beaconFilteringTermsService.listFilteringTerms(any()))
-                .thenReturn(FacetGroup.builder()
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
                         .key("beacon")
                         .label("label")
                         .facets(List.of(
@@ -172,20 +212,20 @@ class BeaconDatasetsRepositoryTest {
                                         .label("label")
                                         .build()
                         ))
-                        .build());
+                        .build()));
 
         when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
-                .thenReturn(KeycloakTokenResponse.builder()
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
                         .accessToken("beaconAccessToken")
-                        .build());
+                        .build()));
 
         var query = DatasetSearchQuery.builder()
                 .build();
-        var actual = underTest.search(query, "dummy");
+        var actual = underTest.search(query, "dummy").await().indefinitely();
 
         verify(keycloakQueryApi).retriveIdpTokens(any(), any());
         verify(beaconQueryApi, never()).listIndividuals(any(), any());
-        verify(ckanQueryApi).packageSearch(any(), any(), any(), any(), any(), any(), any());
+        verify(ckanQueryApi).packageSearch(any(), any(), any(), any(), any(), any(), any(), any());
         verify(beaconFilteringTermsService).listFilteringTerms(any());
 
         assertThat(actual)
@@ -274,14 +314,20 @@ class BeaconDatasetsRepositoryTest {
     @ParameterizedTest
     @NullSource
     @MethodSource("emptyBeaconResultsets")
-    void doesnt_call_ckan_if_there_are_no_beacon_resultsets(
+    void doesnt_search_ckan_datasets_if_there_are_no_beacon_resultsets(
             BeaconIndividualsResponse beaconResponse
     ) {
         when(beaconQueryApi.listIndividuals(any(), any()))
-                .thenReturn(beaconResponse);
+                .thenReturn(Uni.createFrom().item(beaconResponse));
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(1)
+                                .build())
+                        .build()));
 
         when(beaconFilteringTermsService.listFilteringTerms(any()))
-                .thenReturn(FacetGroup.builder()
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
                         .key("beacon")
                         .label("label")
                         .facets(List.of(
@@ -290,12 +336,12 @@ class BeaconDatasetsRepositoryTest {
                                         .label("label")
                                         .build()
                         ))
-                        .build());
+                        .build()));
 
         when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
-                .thenReturn(KeycloakTokenResponse.builder()
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
                         .accessToken("beaconAccessToken")
-                        .build());
+                        .build()));
 
         var query = DatasetSearchQuery.builder()
                 .facets(List.of(
@@ -306,11 +352,13 @@ class BeaconDatasetsRepositoryTest {
                                 .build(
                                 )))
                 .build();
-        var actual = underTest.search(query, "dummy");
+        var actual = underTest.search(query, "dummy").await().indefinitely();
 
         verify(keycloakQueryApi).retriveIdpTokens(any(), any());
         verify(beaconQueryApi).listIndividuals(any(), any());
         verify(beaconFilteringTermsService).listFilteringTerms(any());
+        verify(ckanQueryApi).packageSearch(any(), any(), any(), any(), any(), any(), any(), any());
+        verify(ckanQueryApi).packageSearch(any(), any(), any(), eq(0), any(), any(), any(), any());
 
         assertThat(actual)
                 .usingRecursiveComparison()
@@ -338,7 +386,7 @@ class BeaconDatasetsRepositoryTest {
     @Test
     void calls_ckan_and_beacon() {
         when(beaconQueryApi.listIndividuals(any(), any()))
-                .thenReturn(BeaconIndividualsResponse.builder()
+                .thenReturn(Uni.createFrom().item(BeaconIndividualsResponse.builder()
                         .response(BeaconIndividualsResponseContent.builder()
                                 .resultSets(List.of(
                                         BeaconResultSet.builder()
@@ -348,10 +396,10 @@ class BeaconDatasetsRepositoryTest {
                                                 .build()
                                 ))
                                 .build())
-                        .build());
+                        .build()));
 
-        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any()))
-                .thenReturn(PackagesSearchResponse.builder()
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
                         .result(PackagesSearchResult.builder()
                                 .count(1)
                                 .results(List.of(CkanPackage.builder()
@@ -361,10 +409,10 @@ class BeaconDatasetsRepositoryTest {
                                 )
                                 .build())
 
-                        .build());
+                        .build()));
 
         when(beaconFilteringTermsService.listFilteringTerms(any()))
-                .thenReturn(FacetGroup.builder()
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
                         .key("beacon")
                         .label("label")
                         .facets(List.of(
@@ -373,14 +421,14 @@ class BeaconDatasetsRepositoryTest {
                                         .label("label")
                                         .build()
                         ))
-                        .build());
+                        .build()));
 
         when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
-                .thenReturn(KeycloakTokenResponse.builder()
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
                         .accessToken("beaconAccessToken")
-                        .build());
+                        .build()));
         when(beaconFilteringTermsService.listFilteringTerms(any()))
-                .thenReturn(FacetGroup.builder()
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
                         .key("beacon")
                         .label("label")
                         .facets(List.of(
@@ -389,12 +437,12 @@ class BeaconDatasetsRepositoryTest {
                                         .label("label")
                                         .build()
                         ))
-                        .build());
+                        .build()));
 
         when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
-                .thenReturn(KeycloakTokenResponse.builder()
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
                         .accessToken("beaconAccessToken")
-                        .build());
+                        .build()));
 
         var query = DatasetSearchQuery.builder()
                 .facets(List.of(
@@ -405,11 +453,12 @@ class BeaconDatasetsRepositoryTest {
                                 .build(
                                 )))
                 .build();
-        var actual = underTest.search(query, "dummy");
+        var actual = underTest.search(query, "dummy").await().indefinitely();
 
         verify(keycloakQueryApi).retriveIdpTokens(any(), any());
         verify(beaconQueryApi).listIndividuals(any(), any());
-        verify(ckanQueryApi).packageSearch(any(), any(), any(), any(), any(), any(), any());
+        verify(ckanQueryApi, times(2))
+                .packageSearch(any(), any(), any(), any(), any(), any(), any(), any());
         verify(beaconFilteringTermsService).listFilteringTerms(any());
 
         assertThat(actual)
@@ -446,4 +495,320 @@ class BeaconDatasetsRepositoryTest {
                         ))
                         .build());
     }
+
+    @Test
+    void falls_back_to_ckan_and_stops_calling_beacon_while_it_is_unavailable() {
+        when(beaconQueryApi.listIndividuals(any(), any()))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException(503)));
+        when(beaconFilteringTermsService.listFilteringTerms(any()))
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
+                        .key("beacon")
+                        .label("label")
+                        .facets(List.of())
+                        .build()));
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(1)
+                                .results(List.of(CkanPackage.builder()
+                                        .id("id")
+                                        .title("title")
+                                        .build()))
+                                .build())
+                        .build()));
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .build()));
+
+        var query = DatasetSearchQuery.builder()
+                .facets(List.of(
+                        DatasetSearchQueryFacet.builder()
+                                .facetGroup("beacon")
+                                .facet("key")
+                                .value("value")
+                                .build()))
+                .build();
+        for (var i = 0; i < 15; i++) {
+            var actual = underTest.search(query, "dummy").await().indefinitely();
+
+            assertThat(actual.getBeaconUnavailable()).isTrue();
+            assertThat(actual.getCount()).isEqualTo(1);
+            assertThat(actual.getFacetGroupCount()).isEqualTo(Map.of("ckan", 1));
+        }
+
+        verify(beaconQueryApi, times(10)).listIndividuals(any(), any());
+    }
+
+    @Test
+    void exports_with_a_single_keycloak_and_beacon_round_trip() {
+        when(beaconQueryApi.listIndividuals(any(), any()))
+                .thenReturn(Uni.createFrom().item(BeaconIndividualsResponse.builder()
+                        .response(BeaconIndividualsResponseContent.builder()
+                                .resultSets(List.of(
+                                        BeaconResultSet.builder()
+                                                .id("identifier")
+                                                .resultsCount(5)
+                                                .setType("dataset")
+                                                .build()
+                                ))
+                                .build())
+                        .build()));
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(1)
+                                .results(List.of(CkanPackage.builder()
+                                        .id("id")
+                                        .identifier("identifier")
+                                        .build())
+                                )
+                                .build())
+                        .build()));
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .build()));
+
+        var query = DatasetSearchQuery.builder()
+                .facets(List.of(
+                        DatasetSearchQueryFacet.builder()
+                                .facetGroup("beacon")
+                                .facet("key")
+                                .value("value")
+                                .build()))
+                .build();
+        var actual = underTest.export(query, "dummy")
+                .collect().asList()
+                .await().indefinitely();
+
+        verify(keycloakQueryApi).retriveIdpTokens(any(), any());
+        verify(beaconQueryApi).listIndividuals(any(), any());
+        verify(beaconFilteringTermsService, never()).listFilteringTerms(any());
+        assertThat(actual)
+                .usingRecursiveComparison()
+                .isEqualTo(List.of(SearchedDataset.builder()
+                        .id("id")
+                        .identifier("identifier")
+                        .themes(List.of())
+                        .recordsCount(5)
+                        .build()));
+    }
+
+    @Test
+    void reuses_beacon_results_while_only_ckan_facets_and_paging_change() {
+        when(beaconQueryApi.listIndividuals(any(), any()))
+                .thenReturn(Uni.createFrom().item(BeaconIndividualsResponse.builder()
+                        .response(BeaconIndividualsResponseContent.builder()
+                                .resultSets(List.of(
+                                        BeaconResultSet.builder()
+                                                .id("identifier")
+                                                .resultsCount(5)
+                                                .setType("dataset")
+                                                .build()
+                                ))
+                                .build())
+                        .build()));
+        when(beaconFilteringTermsService.listFilteringTerms(any()))
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
+                        .key("beacon")
+                        .label("label")
+                        .facets(List.of())
+                        .build()));
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(0)
+                                .build())
+                        .build()));
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .build()));
+
+        underTest.search(beaconQuery("theme1", "value1", "value2"), "dummy")
+                .await()
+                .indefinitely();
+        underTest.search(beaconQuery("theme2", "value2", "value1").toBuilder()
+                .start(10)
+                .build(), "dummy")
+                .await()
+                .indefinitely();
+        verify(beaconQueryApi, times(1)).listIndividuals(any(), any());
+        verify(ckanQueryApi, times(4))
+                .packageSearch(any(), any(), any(), any(), any(), any(), any(), any());
+
+        underTest.search(beaconQuery("theme1", "value1"), "dummy")
+                .await()
+                .indefinitely();
+        verify(beaconQueryApi, times(2)).listIndividuals(any(), any());
+    }
+
+    private static DatasetSearchQuery beaconQuery(String theme, String... beaconFilters) {
+        var facets = new ArrayList<DatasetSearchQueryFacet>();
+        facets.add(DatasetSearchQueryFacet.builder()
+                .facetGroup("ckan")
+                .facet("theme")
+                .value(theme)
+                .build());
+        for (var beaconFilter : beaconFilters) {
+            facets.add(DatasetSearchQueryFacet.builder()
+                    .facetGroup("beacon")
+                    .facet("key")
+                    .value(beaconFilter)
+                    .build());
+        }
+        return DatasetSearchQuery.builder()
+                .facets(facets)
+                .build();
+    }
+
+    @Test
+    void queries_beacon_while_filtering_terms_are_being_retrieved() {
+        var beaconQueried = new CompletableFuture<Void>();
+
+        when(beaconQueryApi.listIndividuals(any(), any()))
+                .thenReturn(Uni.createFrom().deferred(() -> {
+                    beaconQueried.complete(null);
+                    return Uni.createFrom().item(BeaconIndividualsResponse.builder()
+                            .response(BeaconIndividualsResponseContent.builder()
+                                    .resultSets(List.of(
+                                            BeaconResultSet.builder()
+                                                    .id("id")
+                                                    .resultsCount(1)
+                                                    .setType("dataset")
+                                                    .build()
+                                    ))
+                                    .build())
+                            .build());
+                }));
+
+        when(beaconFilteringTermsService.listFilteringTerms(any()))
+                .thenReturn(Uni.createFrom().completionStage(beaconQueried.thenApply(
+                        it -> FacetGroup.builder()
+                                .key("beacon")
+                                .label("label")
+                                .facets(List.of())
+                                .build()
+                )));
+
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(1)
+                                .results(List.of(CkanPackage.builder()
+                                        .id("id")
+                                        .identifier("id")
+                                        .title("title")
+                                        .build())
+                                )
+                                .build())
+                        .build()));
+
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .build()));
+
+        var query = DatasetSearchQuery.builder()
+                .facets(List.of(
+                        DatasetSearchQueryFacet.builder()
+                                .facetGroup("beacon")
+                                .facet("key")
+                                .value("value")
+                                .build()
+                ))
+                .build();
+        var actual = underTest.search(query, "dummy").await().atMost(Duration.ofSeconds(5));
+
+        assertThat(actual.getCount()).isEqualTo(1);
+        assertThat(actual.getResults())
+                .extracting(SearchedDataset::getRecordsCount)
+                .containsExactly(1);
+    }
+
+    @Test
+    void searches_ckan_facets_while_beacon_is_queried() {
+        var facetsQueried = new CompletableFuture<Void>();
+
+        when(beaconQueryApi.listIndividuals(any(), any()))
+                .thenReturn(Uni.createFrom().completionStage(facetsQueried.thenApply(
+                        it -> BeaconIndividualsResponse.builder()
+                                .response(BeaconIndividualsResponseContent.builder()
+                                        .resultSets(List.of(
+                                                BeaconResultSet.builder()
+                                                        .id("id")
+                                                        .resultsCount(1)
+                                                        .setType("dataset")
+                                                        .build()
+                                        ))
+                                        .build())
+                                .build()
+                )));
+        when(beaconFilteringTermsService.listFilteringTerms(any()))
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
+                        .key("beacon")
+                        .label("label")
+                        .facets(List.of())
+                        .build()));
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(1)
+                                .results(List.of(CkanPackage.builder()
+                                        .id("id")
+                                        .identifier("id")
+                                        .title("title")
+                                        .build()))
+                                .build())
+                        .build()));
+        when(ckanQueryApi.packageSearch(any(), any(), any(), eq(0), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().deferred(() -> {
+                    facetsQueried.complete(null);
+                    return Uni.createFrom().item(PackagesSearchResponse.builder()
+                            .result(PackagesSearchResult.builder()
+                                    .count(3)
+                                    .searchFacets(Map.of("theme", CkanFacet.builder()
+                                            .title("Theme")
+                                            .items(List.of(CkanValueLabel.builder()
+                                                    .name("theme")
+                                                    .displayName("Theme")
+                                                    .count(3)
+                                                    .build()))
+                                            .build()))
+                                    .build())
+                            .build());
+                }));
+        when(keycloakQueryApi.retriveIdpTokens("beaconIdpAlias", "Bearer dummy"))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .build()));
+
+        var query = DatasetSearchQuery.builder()
+                .facets(List.of(
+                        DatasetSearchQueryFacet.builder()
+                                .facetGroup("beacon")
+                                .facet("key")
+                                .value("value")
+                                .build()
+                ))
+                .build();
+        var actual = underTest.search(query, "dummy").await().atMost(Duration.ofSeconds(5));
+
+        assertThat(actual.getCount()).isEqualTo(1);
+        assertThat(actual.getFacetGroupCount()).isEqualTo(Map.of("ckan", 1, "beacon", 1));
+        assertThat(actual.getResults())
+                .extracting(SearchedDataset::getId)
+                .containsExactly("id");
+        assertThat(actual.getFacetGroups())
+                .extracting(FacetGroup::getKey)
+                .containsExactly("beacon", "ckan");
+        assertThat(actual.getFacetGroups().getLast().getFacets())
+                .extracting(Facet::getKey)
+                .containsExactly("theme");
+        verify(ckanQueryApi).packageSearch(any(), any(), any(), eq(0), eq(0),
+                eq(CkanSearchService.SELECTED_FACETS), any(), any());
+        verify(ckanQueryApi).packageSearch(any(), any(), any(), any(), any(), eq("[]"), any(),
+                any());
+    }
 }
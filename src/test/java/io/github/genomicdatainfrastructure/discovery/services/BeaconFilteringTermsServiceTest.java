@@ -0,0 +1,285 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.isNull;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.github.genomicdatainfrastructure.discovery.model.Facet;
+import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
+import io.github.genomicdatainfrastructure.discovery.model.ValueLabel;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.api.BeaconQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconFilteringTerm;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconFilteringTermsResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconFilteringTermsResponseContent;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconResource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+class BeaconFilteringTermsServiceTest {
+
+    private BeaconQueryApi beaconQueryApi;
+
+    @BeforeEach
+    void setUp() {
+        beaconQueryApi = mock(BeaconQueryApi.class);
+        when(beaconQueryApi.listFilteringTerms(any()))
+                .thenReturn(Uni.createFrom().item(BeaconFilteringTermsResponse.builder()
+                        .response(BeaconFilteringTermsResponseContent.builder()
+                                .filteringTerms(List.of(
+                                        BeaconFilteringTerm.builder()
+                                                .id("HP:0003003")
+                                                .label("Colon cancer")
+                                                .type("ontology")
+                                                .scopes(List.of("individual"))
+                                                .build(),
+                                        BeaconFilteringTerm.builder()
+                                                .id("ethnicity:Asian or Asian British")
+                                                .type("custom")
+                                                .scopes(List.of("individual"))
+                                                .build()
+                                ))
+                                .resources(List.of(
+                                        BeaconResource.builder()
+                                                .id("hp")
+                                                .name("Human Phenotype Ontology")
+                                                .build()
+                                ))
+                                .build())
+                        .build()));
+    }
+
+    @Test
+    void builds_facet_group_from_filtering_terms() {
+        var underTest = underTest(false);
+
+        var actual = underTest.listFilteringTerms(authorization("alice", "first")).await()
+                .indefinitely();
+
+        assertThat(actual)
+                .usingRecursiveComparison()
+                .isEqualTo(FacetGroup.builder()
+                        .key("beacon")
+                        .label("Beacon")
+                        .facets(List.of(
+                                Facet.builder()
+                                        .key("hp")
+                                        .label("Human Phenotype Ontology")
+                                        .values(List.of(
+                                                ValueLabel.builder()
+                                                        .value("HP:0003003")
+                                                        .label("Colon cancer")
+                                                        .build()
+                                        ))
+                                        .build()
+                        ))
+                        .build());
+    }
+
+    @Test
+    void shares_facet_group_between_tokens_of_the_same_user() {
+        var underTest = underTest(false);
+
+        underTest.listFilteringTerms(authorization("alice", "first")).await().indefinitely();
+        underTest.listFilteringTerms(authorization("alice", "second")).await().indefinitely();
+
+        verify(beaconQueryApi, times(1)).listFilteringTerms(any());
+    }
+
+    @Test
+    void keeps_facet_groups_of_different_users_apart() {
+        var underTest = underTest(false);
+
+        underTest.listFilteringTerms(authorization("alice", "first")).await().indefinitely();
+        underTest.listFilteringTerms(authorization("bob", "first")).await().indefinitely();
+
+        verify(beaconQueryApi, times(2)).listFilteringTerms(any());
+    }
+
+    @Test
+    void shares_public_facet_group_between_users() {
+        var underTest = underTest(true);
+
+        underTest.listFilteringTerms(authorization("alice", "first")).await().indefinitely();
+        underTest.listFilteringTerms(authorization("bob", "first")).await().indefinitely();
+
+        verify(beaconQueryApi, times(1)).listFilteringTerms(any());
+    }
+
+    @Test
+    void shares_facet_group_between_users_with_the_same_scope_claim() {
+        var underTest = underTest(false, Optional.of("entitlements"));
+
+        underTest.listFilteringTerms(authorization("alice", "first", "[\"a\",\"b\"]")).await()
+                .indefinitely();
+        underTest.listFilteringTerms(authorization("bob", "first", "[\"b\",\"a\"]")).await()
+                .indefinitely();
+
+        verify(beaconQueryApi, times(1)).listFilteringTerms(any());
+    }
+
+    @Test
+    void keeps_facet_groups_of_different_scope_claims_apart() {
+        var underTest = underTest(false, Optional.of("entitlements"));
+
+        underTest.listFilteringTerms(authorization("alice", "first", "[\"a\"]")).await()
+                .indefinitely();
+        underTest.listFilteringTerms(authorization("bob", "first", "[\"a\",\"b\"]")).await()
+                .indefinitely();
+        underTest.listFilteringTerms(authorization("carol", "first")).await().indefinitely();
+        underTest.listFilteringTerms(authorization("dave", "first")).await().indefinitely();
+
+        verify(beaconQueryApi, times(4)).listFilteringTerms(any());
+    }
+
+    @Test
+    void prewarms_public_facet_group_without_user_authorization() {
+        var underTest = underTest(true);
+
+        underTest.prewarm();
+
+        verify(beaconQueryApi, timeout(5000)).listFilteringTerms(isNull());
+    }
+
+    @Test
+    void keeps_serving_last_snapshot_when_refresh_fails() {
+        var underTest = underTest(false, Duration.ZERO);
+        var authorization = authorization("alice", "first");
+        var expected = underTest.listFilteringTerms(authorization).await().indefinitely();
+
+        when(beaconQueryApi.listFilteringTerms(any()))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("beacon is down")));
+        var stale = underTest.listFilteringTerms(authorization).await().indefinitely();
+        verify(beaconQueryApi, timeout(5000).times(2)).listFilteringTerms(any());
+
+        var actual = underTest.listFilteringTerms(authorization).await().indefinitely();
+
+        assertThat(stale).isSameAs(expected);
+        assertThat(actual).isSameAs(expected);
+    }
+
+    @Test
+    void refreshes_stale_snapshot_with_the_current_token() throws InterruptedException {
+        var underTest = underTest(false, Duration.ZERO);
+        var previous = underTest.listFilteringTerms(authorization("alice", "first")).await()
+                .indefinitely();
+        var current = authorization("alice", "second");
+
+        var stale = underTest.listFilteringTerms(current).await().indefinitely();
+        verify(beaconQueryApi, timeout(5000)).listFilteringTerms(current);
+
+        var actual = underTest.listFilteringTerms(current).await().indefinitely();
+        for (var attempt = 0; actual == previous && attempt < 50; attempt++) {
+            Thread.sleep(100);
+            actual = underTest.listFilteringTerms(current).await().indefinitely();
+        }
+
+        assertThat(stale).isSameAs(previous);
+        assertThat(actual)
+                .isNotSameAs(previous)
+                .usingRecursiveComparison()
+                .isEqualTo(previous);
+    }
+
+    @Test
+    void serves_fresh_snapshot_without_refreshing() {
+        var underTest = underTest(false);
+        var authorization = authorization("alice", "first");
+
+        underTest.listFilteringTerms(authorization).await().indefinitely();
+        underTest.listFilteringTerms(authorization).await().indefinitely();
+
+        verify(beaconQueryApi, times(1)).listFilteringTerms(any());
+    }
+
+    @Test
+    void scheduled_refresh_only_reloads_public_facet_group() {
+        var underTest = underTest(false);
+        underTest.listFilteringTerms(authorization("alice", "first")).await().indefinitely();
+
+        underTest.refreshPublicFilteringTerms();
+
+        verify(beaconQueryApi, times(1)).listFilteringTerms(any());
+
+        underTest.listFilteringTerms(null).await().indefinitely();
+        underTest.refreshPublicFilteringTerms();
+
+        verify(beaconQueryApi, timeout(5000).times(2)).listFilteringTerms(isNull());
+    }
+
+    private BeaconFilteringTermsService underTest(boolean publicFilteringTerms) {
+        return underTest(publicFilteringTerms, Duration.ofMinutes(5));
+    }
+
+    private BeaconFilteringTermsService underTest(
+            boolean publicFilteringTerms,
+            Duration refreshInterval
+    ) {
+        return underTest(publicFilteringTerms, Optional.empty(), refreshInterval);
+    }
+
+    private BeaconFilteringTermsService underTest(
+            boolean publicFilteringTerms,
+            Optional<String> scopeClaim
+    ) {
+        return underTest(publicFilteringTerms, scopeClaim, Duration.ofMinutes(5));
+    }
+
+    private BeaconFilteringTermsService underTest(
+            boolean publicFilteringTerms,
+            Optional<String> scopeClaim,
+            Duration refreshInterval
+    ) {
+        return new BeaconFilteringTermsService(
+                beaconQueryApi,
+                new BeaconCallGuard(
+                        20,
+                        10,
+                        0.5,
+                        Duration.ofSeconds(30),
+                        0.99,
+                        3,
+                        Duration.ofSeconds(2),
+                        Duration.ofSeconds(20),
+                        new SimpleMeterRegistry()
+                ),
+                publicFilteringTerms,
+                scopeClaim,
+                100,
+                Duration.ofHours(24),
+                refreshInterval,
+                new SimpleMeterRegistry()
+        );
+    }
+
+    private String authorization(String subject, String tokenId) {
+        return authorization(subject, tokenId, null);
+    }
+
+    private String authorization(String subject, String tokenId, String entitlements) {
+        var encoder = Base64.getUrlEncoder().withoutPadding();
+        var header = encoder.encodeToString("{\"alg\":\"none\"}".getBytes(UTF_8));
+        var claims = entitlements == null ? "" : ",\"entitlements\":" + entitlements;
+        var payload = encoder.encodeToString(
+                "{\"sub\":\"%s\",\"jti\":\"%s\"%s}".formatted(subject, tokenId, claims)
+                        .getBytes(UTF_8)
+        );
+        return "Bearer %s.%s.signature".formatted(header, payload);
+    }
+}
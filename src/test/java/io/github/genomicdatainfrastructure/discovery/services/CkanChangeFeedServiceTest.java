@@ -0,0 +1,133 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.event.Event;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+class CkanChangeFeedServiceTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    @TempDir
+    Path stateDirectory;
+
+    private CkanQueryApi ckanQueryApi;
+    private Event<DatasetChangeEvent> changes;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ckanQueryApi = mock(CkanQueryApi.class);
+        changes = mock(Event.class);
+    }
+
+    @Test
+    void polls_changes_since_the_persisted_checkpoint() {
+        when(ckanQueryApi.packageSearch(isNull(), isNull(), eq("metadata_modified desc"), eq(1),
+                eq(0), eq("[]"), isNull(), isNull()))
+                .thenReturn(response(dataset("a", "2024-01-01T10:00:00.123456")));
+        when(ckanQueryApi.packageSearch(isNull(),
+                eq("metadata_modified:[2024-01-01T10:00:00.123Z TO *]"),
+                eq("metadata_modified desc"), eq(PAGE_SIZE), eq(0), eq("[]"), isNull(), isNull()))
+                .thenReturn(response(
+                        dataset("c", "2024-01-03T10:00:00.000000"),
+                        dataset("b", "2024-01-02T10:00:00.000000")
+                ));
+        when(ckanQueryApi.packageSearch(isNull(),
+                eq("metadata_modified:[2024-01-01T10:00:00.123Z TO *]"),
+                eq("metadata_modified desc"), eq(PAGE_SIZE), eq(PAGE_SIZE), eq("[]"), isNull(),
+                isNull()))
+                .thenReturn(response(dataset("a", "2024-01-01T10:00:00.123456")));
+
+        assertThat(feed().poll().await().indefinitely()).isZero();
+        verify(changes, never()).fire(any());
+
+        var applied = feed().poll().await().indefinitely();
+
+        assertThat(applied).isEqualTo(2);
+        verify(changes).fire(DatasetChangeEvent.updated(dataset("b",
+                "2024-01-02T10:00:00.000000")));
+        verify(changes).fire(DatasetChangeEvent.updated(dataset("c",
+                "2024-01-03T10:00:00.000000")));
+        verify(changes, never()).fire(DatasetChangeEvent.updated(dataset("a",
+                "2024-01-01T10:00:00.123456")));
+
+        when(ckanQueryApi.packageSearch(isNull(),
+                eq("metadata_modified:[2024-01-03T10:00:00.000Z TO *]"),
+                eq("metadata_modified desc"), eq(PAGE_SIZE), eq(0), eq("[]"), isNull(), isNull()))
+                .thenReturn(response(dataset("c", "2024-01-03T10:00:00.000000")));
+
+        assertThat(feed().poll().await().indefinitely()).isZero();
+    }
+
+    @Test
+    void reconciles_dataset_ids_to_detect_deletions() {
+        when(ckanQueryApi.packageFieldsSearch(isNull(), eq("id,name"), eq("id asc"), eq(
+                PAGE_SIZE), isNull()))
+                .thenReturn(response(dataset("a", null), dataset("b", null)));
+        when(ckanQueryApi.packageFieldsSearch(eq("id:{\"b\" TO *]"), eq("id,name"), eq("id asc"),
+                eq(PAGE_SIZE), isNull()))
+                .thenReturn(response(dataset("c", null)))
+                .thenReturn(response());
+
+        assertThat(feed().reconcile().await().indefinitely()).isZero();
+        verify(changes, never()).fire(any());
+
+        var deleted = feed().reconcile().await().indefinitely();
+
+        assertThat(deleted).isEqualTo(1);
+        verify(changes).fire(DatasetChangeEvent.deleted("c", "c-name"));
+    }
+
+    private CkanChangeFeedService feed() {
+        return new CkanChangeFeedService(
+                ckanQueryApi,
+                changes,
+                new ObjectMapper(),
+                stateDirectory.resolve("state/ckan-change-feed.json").toString(),
+                PAGE_SIZE,
+                new SimpleMeterRegistry()
+        );
+    }
+
+    private static Uni<PackagesSearchResponse> response(CkanPackage... datasets) {
+        return Uni.createFrom().item(PackagesSearchResponse.builder()
+                .result(PackagesSearchResult.builder()
+                        .count(datasets.length)
+                        .results(List.of(datasets))
+                        .build())
+                .build());
+    }
+
+    private static CkanPackage dataset(String id, String modified) {
+        return CkanPackage.builder()
+                .id(id)
+                .name(id + "-name")
+                .metadataModified(modified)
+                .build();
+    }
+}
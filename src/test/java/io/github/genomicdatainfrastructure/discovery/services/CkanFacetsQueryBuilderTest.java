@@ -84,4 +84,22 @@ class CkanFacetsQueryBuilderTest {
         var actual = CkanFacetsQueryBuilder.buildFacetQuery(query);
         assertEquals(expected, actual);
     }
+
+    @Test
+    void can_use_terms_query_for_identifiers() {
+        var query = new DatasetSearchQuery();
+        query.setFacets(List.of(
+                new DatasetSearchQueryFacet("ckan", "identifier", "id1"),
+                new DatasetSearchQueryFacet("ckan", "identifier", "id2"),
+                new DatasetSearchQueryFacet("ckan", "field1", "value1")
+        ));
+
+        var expected = "field1:(\"value1\") AND _query_:\"{!terms f=identifier}id1,id2\"";
+        var actual = CkanFacetsQueryBuilder.buildFacetQuery(query, true);
+        assertEquals(expected, actual);
+
+        query.setFacets(List.of(new DatasetSearchQueryFacet("ckan", "identifier", "id1,id2")));
+        assertEquals("identifier:(\"id1,id2\")", CkanFacetsQueryBuilder.buildFacetQuery(query,
+                true));
+    }
 }
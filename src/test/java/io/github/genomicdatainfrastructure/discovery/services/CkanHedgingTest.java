@@ -0,0 +1,110 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackageShowResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+class CkanHedgingTest {
+
+    private static final Duration STALL = Duration.ofSeconds(10);
+
+    private CkanQueryApi primary;
+    private CkanQueryApi hedge;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        primary = mock(CkanQueryApi.class);
+        hedge = mock(CkanQueryApi.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(primary.packageShow("fast", null)).thenReturn(Uni.createFrom().item(response(
+                "fast")));
+        when(primary.packageShow("stalled", null)).thenReturn(Uni.createFrom().item(response(
+                "primary")).onItem().delayIt().by(STALL));
+        when(hedge.packageShow("stalled", null)).thenReturn(Uni.createFrom().item(response(
+                "hedge")));
+    }
+
+    @Test
+    void answers_from_the_hedge_when_the_primary_stalls() {
+        var underTest = new CkanHedging(true, 0.95, Duration.ofMillis(20), 0.5, hedge,
+                meterRegistry);
+        warmUp(underTest);
+
+        var started = System.nanoTime();
+        var actual = packageShow(underTest, "stalled");
+
+        assertThat(actual.getResult().getId()).isEqualTo("hedge");
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(STALL);
+        assertThat(meterRegistry.get("discovery.hedged.requests")
+                .tag("operation", "package_show")
+                .counter()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void keeps_timing_the_primary_when_the_hedge_wins() {
+        var minimumDelay = Duration.ofMillis(20);
+        var underTest = new CkanHedging(true, 0.95, minimumDelay, 1, hedge, meterRegistry);
+        warmUp(underTest);
+
+        for (var i = 0; i < 20; i++) {
+            assertThat(packageShow(underTest, "stalled").getResult().getId())
+                    .isEqualTo("hedge");
+        }
+
+        assertThat(underTest.observedLatency("package_show"))
+                .hasValueSatisfying(it -> assertThat(it).isGreaterThanOrEqualTo(minimumDelay));
+    }
+
+    @Test
+    void does_not_hedge_beyond_the_budget() {
+        var underTest = new CkanHedging(true, 0.95, Duration.ofMillis(20), 0.01, hedge,
+                meterRegistry);
+        warmUp(underTest);
+
+        var actual = underTest.execute("package_show", primary,
+                api -> api.packageShow("stalled", null))
+                .await()
+                .atMost(STALL.multipliedBy(2));
+
+        assertThat(actual.getResult().getId()).isEqualTo("primary");
+        verify(hedge, never()).packageShow("stalled", null);
+    }
+
+    private void warmUp(CkanHedging underTest) {
+        for (var i = 0; i < 20; i++) {
+            packageShow(underTest, "fast");
+        }
+    }
+
+    private CkanPackageShowResponse packageShow(CkanHedging underTest, String id) {
+        return underTest.execute("package_show", primary, api -> api.packageShow(id, null))
+                .await()
+                .indefinitely();
+    }
+
+    private CkanPackageShowResponse response(String id) {
+        return CkanPackageShowResponse.builder()
+                .result(CkanPackage.builder()
+                        .id(id)
+                        .build())
+                .build();
+    }
+}
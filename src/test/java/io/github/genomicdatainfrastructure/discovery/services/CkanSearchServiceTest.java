@@ -0,0 +1,294 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
+import io.github.genomicdatainfrastructure.discovery.model.ValueLabel;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanFacet;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanValueLabel;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+class CkanSearchServiceTest {
+
+    private static final int EXPORT_PAGE_SIZE = 2;
+    private static final int CHUNK_SIZE = 2;
+
+    private CkanQueryApi ckanQueryApi;
+    private SimpleMeterRegistry meterRegistry;
+    private CkanSearchService underTest;
+
+    @BeforeEach
+    void setUp() {
+        ckanQueryApi = mock(CkanQueryApi.class);
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CkanSearchService(
+                ckanQueryApi,
+                100,
+                Duration.ofMinutes(1),
+                EXPORT_PAGE_SIZE,
+                CHUNK_SIZE,
+                false,
+                new CkanHedging(false, 0.95, Duration.ZERO, 0.1, ckanQueryApi, meterRegistry),
+                meterRegistry
+        );
+
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(1)
+                                .build())
+                        .build()));
+    }
+
+    @Test
+    void reuses_anonymous_search_responses() {
+        var first = underTest.search(query("value1", "value2"), null).await().indefinitely();
+        var second = underTest.search(query("value2", "value1"), null).await().indefinitely();
+
+        assertThat(second).isSameAs(first);
+        verify(ckanQueryApi, times(1))
+                .packageSearch(any(), any(), any(), any(), any(), any(), any(), isNull());
+        assertThat(meterRegistry.get("cache.gets")
+                .tag("cache", "ckan-anonymous-search")
+                .tag("result", "hit")
+                .functionCounter()
+                .count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void records_ckan_calls_and_mapping_time() {
+        underTest.search(query("value1"), "token").await().indefinitely();
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException(503)));
+        assertThatThrownBy(() -> underTest.search(query("value2"), "token")
+                .await()
+                .indefinitely())
+                .isInstanceOf(WebApplicationException.class);
+
+        assertThat(meterRegistry.get("discovery.upstream.requests")
+                .tags("client", "ckan", "operation", "package_search", "outcome", "SUCCESS")
+                .timer()
+                .count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("discovery.upstream.requests")
+                .tags("operation", "package_search", "outcome", "SERVER_ERROR", "status", "503")
+                .timer()
+                .count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("discovery.mappings")
+                .tags("mapper", "packages_search", "outcome", "SUCCESS")
+                .timer()
+                .count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void applies_defaults_to_anonymous_searches() {
+        underTest.search(DatasetSearchQuery.builder().build(), null).await().indefinitely();
+
+        verify(ckanQueryApi).packageSearch(
+                isNull(),
+                eq(""),
+                eq("score desc, metadata_modified desc"),
+                eq(10),
+                eq(0),
+                any(),
+                isNull(),
+                isNull()
+        );
+    }
+
+    @Test
+    void doesnt_cache_authenticated_searches() {
+        underTest.search(query("value1"), "dummy").await().indefinitely();
+        underTest.search(query("value1"), "dummy").await().indefinitely();
+
+        verify(ckanQueryApi, times(2))
+                .packageSearch(any(), any(), any(), any(), any(), any(), any(), eq("dummy"));
+    }
+
+    @Test
+    void exports_all_pages_with_keyset_pagination() {
+        when(ckanQueryApi.packageSearch(any(), eq("field:(\"value1\")"), any(), any(), any(), any(),
+                any(), any()))
+                .thenReturn(page("a", "b"));
+        when(ckanQueryApi.packageSearch(any(), eq("field:(\"value1\") AND id:{\"b\" TO *]"), any(),
+                any(), any(), any(), any(), any()))
+                .thenReturn(page("c"));
+
+        var actual = underTest.export(query("value1"), "dummy")
+                .map(SearchedDataset::getId)
+                .collect().asList()
+                .await().indefinitely();
+
+        assertThat(actual).containsExactly("a", "b", "c");
+        verify(ckanQueryApi, times(2))
+                .packageSearch(any(), any(), eq("id asc"), eq(EXPORT_PAGE_SIZE), eq(0), eq("[]"),
+                        isNull(), eq("dummy"));
+    }
+
+    @Test
+    void prefetches_the_next_export_page() {
+        when(ckanQueryApi.packageSearch(any(), eq("field:(\"value1\")"), any(), any(), any(), any(),
+                any(), any()))
+                .thenReturn(page("a", "b"));
+        when(ckanQueryApi.packageSearch(any(), eq("field:(\"value1\") AND id:{\"b\" TO *]"), any(),
+                any(), any(), any(), any(), any()))
+                .thenReturn(page());
+
+        var subscriber = underTest.export(query("value1"), null)
+                .subscribe().withSubscriber(AssertSubscriber.create(1));
+
+        subscriber.assertItems(SearchedDataset.builder()
+                .id("a")
+                .themes(List.of())
+                .build());
+        verify(ckanQueryApi, times(2))
+                .packageSearch(any(), any(), eq("id asc"), any(), any(), any(), any(), isNull());
+    }
+
+    @Test
+    void searches_large_identifier_sets_in_chunks_and_merges_them() {
+        when(ckanQueryApi.packageSearch(any(), eq("identifier:(\"a\" OR \"b\")"), any(), any(),
+                any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(searchResponse(2,
+                        Map.of("x", 1, "y", 1),
+                        dataset("a", "2024-03-01T00:00:00.000000"),
+                        dataset("b", "2024-01-01T00:00:00.000000"))));
+        when(ckanQueryApi.packageSearch(any(), eq("identifier:(\"c\")"), any(), any(), any(),
+                any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(searchResponse(1,
+                        Map.of("x", 1),
+                        dataset("c", "2024-02-01T00:00:00.000000"))));
+
+        var actual = underTest.search(identifiers("a", "b", "c", "a").toBuilder()
+                .sort("metadata_modified desc")
+                .start(1)
+                .rows(2)
+                .build(), "token")
+                .await()
+                .indefinitely();
+
+        assertThat(actual.getCount()).isEqualTo(3);
+        assertThat(actual.getResults())
+                .extracting(SearchedDataset::getId)
+                .containsExactly("c", "b");
+        assertThat(actual.getFacetGroups().getFirst().getFacets().getFirst().getValues())
+                .extracting(ValueLabel::getValue, ValueLabel::getLabel)
+                .containsExactly(tuple("x", "x"), tuple("y", "y"));
+        verify(ckanQueryApi, times(2)).packageSearch(any(), any(), eq("metadata_modified desc"),
+                eq(3), eq(0), any(), eq(-1), eq("token"));
+    }
+
+    @Test
+    void keeps_a_single_query_when_chunks_cannot_be_merged_exactly() {
+        underTest.search(identifiers("a", "b", "c").toBuilder()
+                .query("cancer")
+                .build(), "token")
+                .await()
+                .indefinitely();
+
+        verify(ckanQueryApi).packageSearch(eq("cancer"),
+                eq("identifier:(\"a\" OR \"b\" OR \"c\")"), any(), any(), any(), any(),
+                isNull(), eq("token"));
+    }
+
+    private static PackagesSearchResponse searchResponse(
+            int count,
+            Map<String, Integer> themes,
+            CkanPackage... packages
+    ) {
+        return PackagesSearchResponse.builder()
+                .result(PackagesSearchResult.builder()
+                        .count(count)
+                        .results(List.of(packages))
+                        .searchFacets(Map.of("theme", CkanFacet.builder()
+                                .title("Themes")
+                                .items(themes.entrySet().stream()
+                                        .map(it -> CkanValueLabel.builder()
+                                                .name(it.getKey())
+                                                .displayName(it.getKey())
+                                                .count(it.getValue())
+                                                .build())
+                                        .toList())
+                                .build()))
+                        .build())
+                .build();
+    }
+
+    private static CkanPackage dataset(String id, String metadataModified) {
+        return CkanPackage.builder()
+                .id(id)
+                .metadataModified(metadataModified)
+                .build();
+    }
+
+    private static DatasetSearchQuery identifiers(String... values) {
+        return DatasetSearchQuery.builder()
+                .facets(Stream.of(values)
+                        .map(it -> DatasetSearchQueryFacet.builder()
+                                .facetGroup("ckan")
+                                .facet("identifier")
+                                .value(it)
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    private static Uni<PackagesSearchResponse> page(String... ids) {
+        return Uni.createFrom().item(PackagesSearchResponse.builder()
+                .result(PackagesSearchResult.builder()
+                        .count(ids.length)
+                        .results(Stream.of(ids)
+                                .map(id -> CkanPackage.builder()
+                                        .id(id)
+                                        .build())
+                                .toList())
+                        .build())
+                .build());
+    }
+
+    private DatasetSearchQuery query(String... values) {
+        var facets = List.of(values).stream()
+                .map(it -> DatasetSearchQueryFacet.builder()
+                        .facetGroup("ckan")
+                        .facet("field")
+                        .value(it)
+                        .build())
+                .toList();
+
+        return DatasetSearchQuery.builder()
+                .facets(facets)
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.genomicdatainfrastructure.discovery.exceptions.UnsupportedFacetGroupException;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanStreamingQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.utils.CkanFacetsQueryBuilder;
+import io.github.genomicdatainfrastructure.discovery.utils.DatasetSearchQueryNormalizer;
+import io.github.genomicdatainfrastructure.discovery.utils.PackagesSearchResponseMapper;
+import io.smallrye.mutiny.Multi;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class CkanStreamingSearchServiceTest {
+
+    private static final int CHUNK_SIZE = 16;
+
+    private ObjectMapper objectMapper;
+    private CkanStreamingQueryApi ckanStreamingQueryApi;
+    private CkanStreamingSearchService underTest;
+    private byte[] packageSearchBody;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .findAndRegisterModules();
+        ckanStreamingQueryApi = mock(CkanStreamingQueryApi.class);
+        underTest = new CkanStreamingSearchService(ckanStreamingQueryApi, objectMapper);
+
+        try (var mapping = getClass().getClassLoader()
+                .getResourceAsStream("mappings/package_search.json")) {
+            var body = objectMapper.readTree(mapping).path("response").path("jsonBody");
+            packageSearchBody = objectMapper.writeValueAsBytes(body);
+        }
+    }
+
+    @Test
+    void streams_the_same_response_as_the_buffered_mapping() throws IOException {
+        when(ckanStreamingQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Multi.createFrom().iterable(chunks(packageSearchBody)));
+
+        var chunks = underTest.search(query(), "token")
+                .collect().asList()
+                .await().indefinitely();
+
+        var streamed = objectMapper.readValue(concat(chunks), DatasetsSearchResponse.class);
+        var expected = PackagesSearchResponseMapper.from(
+                objectMapper.readValue(packageSearchBody, PackagesSearchResponse.class)
+        );
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(streamed.getResults()).hasSize(10);
+        assertThat(streamed)
+                .usingRecursiveComparison()
+                .isEqualTo(expected);
+        verify(ckanStreamingQueryApi).packageSearch(
+                eq("cancer"),
+                eq(CkanFacetsQueryBuilder.buildFacetQuery(
+                        DatasetSearchQueryNormalizer.normalize(query()))),
+                eq("score desc, metadata_modified desc"),
+                eq(10),
+                eq(0),
+                eq(CkanSearchService.SELECTED_FACETS),
+                eq("token")
+        );
+    }
+
+    @Test
+    void propagates_ckan_failures() {
+        when(ckanStreamingQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Multi.createFrom().failure(new WebApplicationException(400)));
+
+        var chunks = underTest.search(query(), null)
+                .collect().asList();
+
+        assertThatThrownBy(() -> chunks.await().indefinitely())
+                .isInstanceOf(WebApplicationException.class);
+    }
+
+    @Test
+    void rejects_queries_with_beacon_filters() {
+        var query = query().toBuilder()
+                .facets(List.of(DatasetSearchQueryFacet.builder()
+                        .facetGroup("beacon")
+                        .facet("sex")
+                        .value("NCIT:C16576")
+                        .build()))
+                .build();
+
+        assertThatThrownBy(() -> underTest.search(query, "token"))
+                .isInstanceOf(UnsupportedFacetGroupException.class);
+        verifyNoInteractions(ckanStreamingQueryApi);
+    }
+
+    private static DatasetSearchQuery query() {
+        return DatasetSearchQuery.builder()
+                .query("cancer")
+                .facets(List.of(DatasetSearchQueryFacet.builder()
+                        .facetGroup("ckan")
+                        .facet("theme")
+                        .value("http://example.com/theme")
+                        .build()))
+                .build();
+    }
+
+    private static List<byte[]> chunks(byte[] body) {
+        var chunks = new ArrayList<byte[]>();
+        for (var start = 0; start < body.length; start += CHUNK_SIZE) {
+            chunks.add(Arrays.copyOfRange(body, start, Math.min(body.length, start + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private static byte[] concat(List<byte[]> chunks) {
+        var output = new ByteArrayOutputStream();
+        chunks.forEach(output::writeBytes);
+        return output.toByteArray();
+    }
+}
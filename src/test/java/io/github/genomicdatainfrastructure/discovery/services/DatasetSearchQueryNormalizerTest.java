@@ -0,0 +1,117 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import io.github.genomicdatainfrastructure.discovery.utils.DatasetSearchQueryNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class DatasetSearchQueryNormalizerTest {
+
+    @Test
+    void applies_defaults() {
+        var actual = DatasetSearchQueryNormalizer.normalize(DatasetSearchQuery.builder().build());
+
+        assertThat(actual)
+                .usingRecursiveComparison()
+                .isEqualTo(DatasetSearchQuery.builder()
+                        .facets(List.of())
+                        .sort("score desc, metadata_modified desc")
+                        .rows(10)
+                        .start(0)
+                        .operator(DatasetSearchQuery.OperatorEnum.OR)
+                        .build());
+    }
+
+    @Test
+    void trims_dedupes_and_sorts_facets() {
+        var query = DatasetSearchQuery.builder()
+                .query("  ")
+                .sort(" title asc ")
+                .facets(facets(
+                        new DatasetSearchQueryFacet("ckan", "theme", "b"),
+                        new DatasetSearchQueryFacet(" ckan ", "theme", " a "),
+                        new DatasetSearchQueryFacet("beacon", null, "HP:1"),
+                        null,
+                        new DatasetSearchQueryFacet("ckan", "theme", "b"),
+                        new DatasetSearchQueryFacet("ckan", "theme", " "),
+                        new DatasetSearchQueryFacet(" ", "theme", "c"),
+                        new DatasetSearchQueryFacet("ckan", "access_rights", "public")
+                ))
+                .build();
+
+        var actual = DatasetSearchQueryNormalizer.normalize(query);
+
+        assertThat(actual.getQuery()).isNull();
+        assertThat(actual.getSort()).isEqualTo("title asc");
+        assertThat(actual.getFacets())
+                .containsExactly(
+                        new DatasetSearchQueryFacet("beacon", null, "HP:1"),
+                        new DatasetSearchQueryFacet("ckan", "access_rights", "public"),
+                        new DatasetSearchQueryFacet("ckan", "theme", "a"),
+                        new DatasetSearchQueryFacet("ckan", "theme", "b")
+                );
+    }
+
+    @Test
+    void produces_the_same_hash_key_for_equivalent_queries() {
+        var first = DatasetSearchQuery.builder()
+                .facets(facets(
+                        new DatasetSearchQueryFacet("ckan", "theme", "a"),
+                        new DatasetSearchQueryFacet("ckan", "tags", "b")
+                ))
+                .build();
+        var second = DatasetSearchQuery.builder()
+                .facets(facets(
+                        new DatasetSearchQueryFacet("ckan", "tags", " b"),
+                        new DatasetSearchQueryFacet("ckan", "theme", "a"),
+                        new DatasetSearchQueryFacet("ckan", "theme", "a")
+                ))
+                .sort("score desc, metadata_modified desc")
+                .rows(10)
+                .start(0)
+                .operator(DatasetSearchQuery.OperatorEnum.OR)
+                .build();
+
+        var firstKey = DatasetSearchQueryNormalizer.hashKey(
+                DatasetSearchQueryNormalizer.normalize(first)
+        );
+        var secondKey = DatasetSearchQueryNormalizer.hashKey(
+                DatasetSearchQueryNormalizer.normalize(second)
+        );
+
+        assertThat(firstKey).isEqualTo(secondKey);
+    }
+
+    @Test
+    void produces_different_hash_keys_for_different_queries() {
+        var first = DatasetSearchQuery.builder()
+                .facets(facets(new DatasetSearchQueryFacet("ckan", "theme", "a")))
+                .build();
+        var second = first.toBuilder()
+                .start(10)
+                .build();
+
+        var firstKey = DatasetSearchQueryNormalizer.hashKey(
+                DatasetSearchQueryNormalizer.normalize(first)
+        );
+        var secondKey = DatasetSearchQueryNormalizer.hashKey(
+                DatasetSearchQueryNormalizer.normalize(second)
+        );
+
+        assertThat(firstKey).isNotEqualTo(secondKey);
+    }
+
+    private List<DatasetSearchQueryFacet> facets(DatasetSearchQueryFacet... facets) {
+        return new ArrayList<>(Arrays.asList(facets));
+    }
+}
@@ -0,0 +1,250 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.model.Facet;
+import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
+import io.github.genomicdatainfrastructure.discovery.model.SearchedDataset;
+import io.github.genomicdatainfrastructure.discovery.model.ValueLabel;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanFacet;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanOrganization;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanTag;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanValueLabel;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+class LocalDatasetIndexServiceTest {
+
+    private CkanSearchService ckanSearchService;
+    private LocalDatasetIndexService underTest;
+
+    @BeforeEach
+    void setUp() {
+        ckanSearchService = mock(CkanSearchService.class);
+        underTest = new LocalDatasetIndexService(ckanSearchService);
+
+        when(ckanSearchService.search(any(), isNull()))
+                .thenReturn(Uni.createFrom().item(DatasetsSearchResponse.builder()
+                        .facetGroups(List.of(FacetGroup.builder()
+                                .key("ckan")
+                                .facets(List.of(Facet.builder()
+                                        .key("tags")
+                                        .label("Keywords")
+                                        .build()))
+                                .build()))
+                        .build()));
+        when(ckanSearchService.exportPackages(isNull(), eq(""), isNull()))
+                .thenReturn(Multi.createFrom().items(
+                        dataset("a", "2024-01-01T10:00:00.000000", "genomics", "lumc", "x"),
+                        dataset("b", "2024-01-02T10:00:00.123456", "imaging", "lumc", "x", "y"),
+                        dataset("c", "2024-01-03T10:00:00.000000", "genomics", "umcg", "y")
+                ));
+    }
+
+    @Test
+    void answers_facet_filters_and_counts_from_the_index() {
+        underTest.load().await().indefinitely();
+
+        var response = underTest.search(query(DatasetSearchQuery.OperatorEnum.OR,
+                facet("organization", "lumc"),
+                facet("tags", "x"),
+                facet("tags", "y")))
+                .await()
+                .indefinitely();
+
+        assertThat(response.getCount()).isEqualTo(2);
+        assertThat(response.getFacetGroupCount()).containsEntry("ckan", 2);
+        assertThat(response.getResults())
+                .extracting(SearchedDataset::getId)
+                .containsExactly("b", "a");
+        assertThat(response.getFacetGroups().getFirst().getFacets())
+                .filteredOn(facet -> facet.getKey().equals("tags"))
+                .extracting(Facet::getLabel)
+                .containsExactly("Keywords");
+        assertThat(response.getFacetGroups().getFirst().getFacets())
+                .filteredOn(facet -> facet.getKey().equals("tags"))
+                .flatExtracting(Facet::getValues)
+                .containsExactly(
+                        ValueLabel.builder().value("x").label("X").build(),
+                        ValueLabel.builder().value("y").label("Y").build()
+                );
+
+        var allTags = underTest.search(query(DatasetSearchQuery.OperatorEnum.AND,
+                facet("tags", "x"),
+                facet("tags", "y")))
+                .await()
+                .indefinitely();
+
+        assertThat(allTags.getResults())
+                .extracting(SearchedDataset::getId)
+                .containsExactly("b");
+    }
+
+    @Test
+    void answers_like_ckan_for_the_same_query() {
+        var packages = List.of(
+                dataset("c", "2024-01-03T10:00:00.000000", "genomics", "umcg", "y"),
+                dataset("b", "2024-01-02T10:00:00.123456", "imaging", "lumc", "x", "y"),
+                dataset("a", "2024-01-01T10:00:00.000000", "genomics", "lumc", "x")
+        );
+        var searchFacets = new LinkedHashMap<String, CkanFacet>();
+        searchFacets.put("theme", ckanFacet("Themes", item("genomics", "genomics", 2),
+                item("imaging", "imaging", 1)));
+        searchFacets.put("tags", ckanFacet("Keywords", item("x", "X", 2), item("y", "Y", 2)));
+        searchFacets.put("organization", ckanFacet("Organizations", item("lumc", "LUMC", 2),
+                item("umcg", "UMCG", 1)));
+        var ckanQueryApi = mock(CkanQueryApi.class);
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(packages.size())
+                                .results(packages)
+                                .searchFacets(searchFacets)
+                                .build())
+                        .build()));
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), eq("[]"), any(),
+                any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(packages.size())
+                                .results(packages)
+                                .build())
+                        .build()));
+        var meterRegistry = new SimpleMeterRegistry();
+        var ckan = new CkanSearchService(ckanQueryApi, 100, Duration.ofMinutes(1), 1000, 100,
+                false, new CkanHedging(false, 0.95, Duration.ZERO, 0.1, ckanQueryApi,
+                        meterRegistry), meterRegistry);
+        var local = new LocalDatasetIndexService(ckan);
+        local.load().await().indefinitely();
+
+        var query = query(DatasetSearchQuery.OperatorEnum.OR);
+        assertThat(local.search(query).await().indefinitely())
+                .isEqualTo(ckan.search(query, "token").await().indefinitely());
+    }
+
+    @Test
+    void applies_dataset_change_events() {
+        underTest.load().await().indefinitely();
+
+        underTest.onDatasetChange(DatasetChangeEvent.updated(
+                dataset("a", "2024-01-04T10:00:00.000000", "imaging", "umcg", "y")));
+        underTest.onDatasetChange(DatasetChangeEvent.updated(
+                dataset("c", "2024-01-01T00:00:00.000000", "imaging", "umcg", "y")));
+        underTest.onDatasetChange(DatasetChangeEvent.deleted("b", "b"));
+
+        var response = underTest.search(query(DatasetSearchQuery.OperatorEnum.OR,
+                facet("theme", "genomics")))
+                .await()
+                .indefinitely();
+        assertThat(response.getResults())
+                .extracting(SearchedDataset::getId)
+                .containsExactly("c");
+        assertThat(underTest.export(query(DatasetSearchQuery.OperatorEnum.OR,
+                facet("organization", "umcg")))
+                .collect()
+                .asList()
+                .await()
+                .indefinitely())
+                .extracting(SearchedDataset::getId)
+                .containsExactly("a", "c");
+        assertThat(underTest.export(query(DatasetSearchQuery.OperatorEnum.OR,
+                facet("organization", "lumc")))
+                .collect()
+                .asList()
+                .await()
+                .indefinitely())
+                .isEmpty();
+    }
+
+    @Test
+    void leaves_free_text_and_unindexed_facets_to_ckan() {
+        assertThat(underTest.canAnswer(query(DatasetSearchQuery.OperatorEnum.OR))).isFalse();
+
+        underTest.load().await().indefinitely();
+
+        assertThat(underTest.canAnswer(query(DatasetSearchQuery.OperatorEnum.OR))).isTrue();
+        assertThat(underTest.canAnswer(query(DatasetSearchQuery.OperatorEnum.OR)
+                .toBuilder()
+                .query("cancer")
+                .build())).isFalse();
+        assertThat(underTest.canAnswer(query(DatasetSearchQuery.OperatorEnum.OR,
+                facet("conforms_to", "profile")))).isFalse();
+    }
+
+    private static CkanFacet ckanFacet(String title, CkanValueLabel... items) {
+        return CkanFacet.builder()
+                .title(title)
+                .items(List.of(items))
+                .build();
+    }
+
+    private static CkanValueLabel item(String name, String displayName, int count) {
+        return CkanValueLabel.builder()
+                .name(name)
+                .displayName(displayName)
+                .count(count)
+                .build();
+    }
+
+    private static DatasetSearchQuery query(DatasetSearchQuery.OperatorEnum operator,
+            DatasetSearchQueryFacet... facets) {
+        return DatasetSearchQuery.builder()
+                .operator(operator)
+                .facets(List.of(facets))
+                .build();
+    }
+
+    private static DatasetSearchQueryFacet facet(String facet, String value) {
+        return DatasetSearchQueryFacet.builder()
+                .facetGroup("ckan")
+                .facet(facet)
+                .value(value)
+                .build();
+    }
+
+    private static CkanPackage dataset(String id, String modified, String theme,
+            String organization, String... tags) {
+        return CkanPackage.builder()
+                .id(id)
+                .title(id)
+                .metadataModified(modified)
+                .theme(List.of(CkanValueLabel.builder()
+                        .name(theme)
+                        .displayName(theme)
+                        .build()))
+                .organization(CkanOrganization.builder()
+                        .name(organization)
+                        .title(organization.toUpperCase())
+                        .build())
+                .tags(List.of(tags).stream()
+                        .map(tag -> CkanTag.builder()
+                                .name(tag)
+                                .displayName(tag.toUpperCase())
+                                .build())
+                        .toList())
+                .build();
+    }
+}
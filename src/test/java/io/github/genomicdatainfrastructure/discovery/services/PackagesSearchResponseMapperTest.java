@@ -7,6 +7,7 @@ package io.github.genomicdatainfrastructure.discovery.services;
 import static java.time.LocalDateTime.parse;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -295,4 +296,53 @@ class PackagesSearchResponseMapperTest {
                 .usingRecursiveComparison()
                 .isEqualTo(expected);
     }
+
+    @Test
+    void skips_null_themes_and_reuses_repeated_timestamps() {
+        var theme = CkanValueLabel.builder()
+                .name("theme")
+                .displayName("theme")
+                .build();
+        var themes = new ArrayList<CkanValueLabel>();
+        themes.add(null);
+        themes.add(theme);
+        var packagesSearchResponse = PackagesSearchResponse.builder()
+                .result(PackagesSearchResult.builder()
+                        .count(2)
+                        .results(List.of(
+                                CkanPackage.builder()
+                                        .id("first")
+                                        .theme(themes)
+                                        .metadataCreated("2024-03-19T13:37:05.472970")
+                                        .metadataModified("2024-03-19T13:37:05.472970")
+                                        .build(),
+                                CkanPackage.builder()
+                                        .id("second")
+                                        .metadataCreated("2024-03-19T13:37:05.472970")
+                                        .metadataModified("2024-03-20T10:00:00.000000")
+                                        .build()
+                        ))
+                        .build())
+                .build();
+
+        var actual = PackagesSearchResponseMapper.from(
+                packagesSearchResponse
+        );
+
+        var first = actual.getResults().get(0);
+        var second = actual.getResults().get(1);
+        assertThat(first.getThemes())
+                .containsExactly(ValueLabel.builder()
+                        .value("theme")
+                        .label("theme")
+                        .build());
+        assertThat(second.getThemes())
+                .isEmpty();
+        assertThat(first.getCreatedAt())
+                .isEqualTo(parse("2024-03-19T13:37:05.472970", DATE_FORMATTER))
+                .isSameAs(first.getModifiedAt())
+                .isSameAs(second.getCreatedAt());
+        assertThat(second.getModifiedAt())
+                .isEqualTo(parse("2024-03-20T10:00:00.000000", DATE_FORMATTER));
+    }
 }
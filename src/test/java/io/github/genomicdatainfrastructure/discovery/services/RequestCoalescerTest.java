@@ -0,0 +1,78 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.github.genomicdatainfrastructure.discovery.utils.RequestCoalescer;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RequestCoalescerTest {
+
+    private final RequestCoalescer<String, String> underTest = new RequestCoalescer<>();
+
+    @Test
+    void shares_in_flight_request_with_identical_callers() throws Exception {
+        var calls = new AtomicInteger();
+        var response = new CompletableFuture<String>();
+
+        var results = new ArrayList<CompletableFuture<String>>();
+        for (var i = 0; i < 4; i++) {
+            results.add(underTest.execute("key", () -> {
+                calls.incrementAndGet();
+                return Uni.createFrom().completionStage(response);
+            }).subscribeAsCompletionStage());
+        }
+        response.complete("response");
+
+        for (var result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("response");
+        }
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void doesnt_share_requests_with_different_keys() {
+        var first = underTest.execute("first", () -> Uni.createFrom().item("first response"));
+        var second = underTest.execute("second", () -> Uni.createFrom().item("second response"));
+
+        assertThat(first.await().indefinitely()).isEqualTo("first response");
+        assertThat(second.await().indefinitely()).isEqualTo("second response");
+    }
+
+    @Test
+    void doesnt_keep_completed_requests() {
+        var calls = new AtomicInteger();
+
+        underTest.execute("key", () -> Uni.createFrom().item("response " + calls.incrementAndGet()))
+                .await().indefinitely();
+        var actual = underTest.execute("key", () -> Uni.createFrom().item(
+                "response " + calls.incrementAndGet()))
+                .await().indefinitely();
+
+        assertThat(actual).isEqualTo("response 2");
+    }
+
+    @Test
+    void propagates_failure_and_forgets_it() {
+        assertThatThrownBy(() -> underTest.execute("key", () -> Uni.createFrom().<String>failure(
+                new WebApplicationException(500)))
+                .await().indefinitely())
+                .isInstanceOf(WebApplicationException.class);
+
+        var actual = underTest.execute("key", () -> Uni.createFrom().item("response"))
+                .await().indefinitely();
+
+        assertThat(actual).isEqualTo("response");
+    }
+}
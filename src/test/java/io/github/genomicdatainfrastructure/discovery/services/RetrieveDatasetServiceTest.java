@@ -0,0 +1,261 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.github.genomicdatainfrastructure.discovery.exceptions.DatasetNotFoundException;
+import io.github.genomicdatainfrastructure.discovery.exceptions.TooManyDatasetIdsException;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetRetrieveResult;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetsRetrieveQuery;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackageShowResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.ws.rs.WebApplicationException;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+class RetrieveDatasetServiceTest {
+
+    private CkanQueryApi ckanQueryApi;
+    private MutableClock clock;
+    private RetrieveDatasetService underTest;
+
+    @BeforeEach
+    void setUp() {
+        ckanQueryApi = mock(CkanQueryApi.class);
+        clock = new MutableClock();
+        underTest = new RetrieveDatasetService(
+                ckanQueryApi,
+                100,
+                Duration.ofHours(1),
+                Duration.ofMinutes(1),
+                Duration.ofSeconds(30),
+                2,
+                3,
+                new CkanHedging(false, 0.95, Duration.ZERO, 0.1, ckanQueryApi,
+                        new SimpleMeterRegistry()),
+                new SimpleMeterRegistry(),
+                clock
+        );
+    }
+
+    @Test
+    void reuses_public_dataset_while_it_is_fresh() {
+        when(ckanQueryApi.packageShow("id", null)).thenReturn(Uni.createFrom().item(packageShow(
+                "2024-01-01T00:00:00.000000")));
+
+        var first = underTest.retrieve("id", null).await().indefinitely();
+        clock.advance(Duration.ofSeconds(30));
+        var second = underTest.retrieve("id", null).await().indefinitely();
+
+        assertThat(second).isSameAs(first);
+        verify(ckanQueryApi, times(1)).packageShow("id", null);
+        verify(ckanQueryApi, never()).packageFieldsSearch(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void revalidates_unchanged_public_dataset_without_fetching_it() {
+        when(ckanQueryApi.packageShow("id", null)).thenReturn(Uni.createFrom().item(packageShow(
+                "2024-01-01T00:00:00.000000")));
+        when(ckanQueryApi.packageFieldsSearch(any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(revision("2024-01-01T00:00:00.000000")));
+
+        var first = underTest.retrieve("id", null).await().indefinitely();
+        clock.advance(Duration.ofMinutes(2));
+        var second = underTest.retrieve("id", null).await().indefinitely();
+        var third = underTest.retrieve("id", null).await().indefinitely();
+
+        assertThat(second).isSameAs(first);
+        assertThat(third).isSameAs(first);
+        verify(ckanQueryApi, times(1)).packageShow("id", null);
+        verify(ckanQueryApi, times(1)).packageFieldsSearch(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void refetches_public_dataset_when_it_was_modified() {
+        when(ckanQueryApi.packageShow("id", null))
+                .thenReturn(Uni.createFrom().item(packageShow("2024-01-01T00:00:00.000000")))
+                .thenReturn(Uni.createFrom().item(packageShow("2024-02-01T00:00:00.000000")));
+        when(ckanQueryApi.packageFieldsSearch(any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(revision("2024-02-01T00:00:00.000000")));
+
+        underTest.retrieve("id", null).await().indefinitely();
+        clock.advance(Duration.ofMinutes(2));
+        var actual = underTest.retrieve("id", null).await().indefinitely();
+
+        assertThat(actual.getModifiedAt()).isEqualTo(LocalDateTime.parse("2024-02-01T00:00:00"));
+        verify(ckanQueryApi, times(2)).packageShow("id", null);
+    }
+
+    @Test
+    void caches_not_found_datasets_briefly() {
+        when(ckanQueryApi.packageShow("dummy", null)).thenReturn(Uni.createFrom().failure(
+                new WebApplicationException(404)));
+
+        assertThatThrownBy(() -> underTest.retrieve("dummy", null).await().indefinitely())
+                .isInstanceOf(DatasetNotFoundException.class);
+        assertThatThrownBy(() -> underTest.retrieve("dummy", null).await().indefinitely())
+                .isInstanceOf(DatasetNotFoundException.class);
+        verify(ckanQueryApi, times(1)).packageShow("dummy", null);
+
+        clock.advance(Duration.ofSeconds(31));
+        assertThatThrownBy(() -> underTest.retrieve("dummy", null).await().indefinitely())
+                .isInstanceOf(DatasetNotFoundException.class);
+        verify(ckanQueryApi, times(2)).packageShow("dummy", null);
+    }
+
+    @Test
+    void doesnt_cache_unexpected_errors() {
+        when(ckanQueryApi.packageShow("id", null))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException(500)))
+                .thenReturn(Uni.createFrom().item(packageShow("2024-01-01T00:00:00.000000")));
+
+        assertThatThrownBy(() -> underTest.retrieve("id", null).await().indefinitely())
+                .isInstanceOf(WebApplicationException.class);
+        var actual = underTest.retrieve("id", null).await().indefinitely();
+
+        assertThat(actual.getId()).isEqualTo("id");
+    }
+
+    @Test
+    void doesnt_cache_authenticated_retrievals() {
+        when(ckanQueryApi.packageShow("id", "token")).thenReturn(Uni.createFrom().item(packageShow(
+                "2024-01-01T00:00:00.000000")));
+
+        underTest.retrieve("id", "token").await().indefinitely();
+        underTest.retrieve("id", "token").await().indefinitely();
+
+        verify(ckanQueryApi, times(2)).packageShow("id", "token");
+    }
+
+    @Test
+    void retrieves_several_datasets_with_a_result_per_id() {
+        when(ckanQueryApi.packageShow("id", null)).thenReturn(Uni.createFrom().item(packageShow(
+                "2024-01-01T00:00:00.000000")));
+        when(ckanQueryApi.packageShow("dummy", null)).thenReturn(Uni.createFrom().failure(
+                new WebApplicationException(404)));
+        when(ckanQueryApi.packageShow("broken", null)).thenReturn(Uni.createFrom().failure(
+                new WebApplicationException(500)));
+
+        var cached = underTest.retrieve("id", null).await().indefinitely();
+        var actual = underTest.retrieveAll(query("dummy", "id", "broken", "id"), null)
+                .await()
+                .indefinitely()
+                .getResults();
+
+        assertThat(actual)
+                .extracting(DatasetRetrieveResult::getId)
+                .containsExactly("dummy", "id", "broken");
+        assertThat(actual.get(0).getError().getStatus()).isEqualTo(404);
+        assertThat(actual.get(1).getDataset()).isSameAs(cached);
+        assertThat(actual.get(1).getError()).isNull();
+        assertThat(actual.get(2).getError().getStatus()).isEqualTo(500);
+        verify(ckanQueryApi, times(1)).packageShow("id", null);
+    }
+
+    @Test
+    void limits_concurrent_retrievals() {
+        var pending = new ArrayList<UniEmitter<? super CkanPackageShowResponse>>();
+        when(ckanQueryApi.packageShow(any(), any())).thenAnswer(invocation -> Uni.createFrom()
+                .<CkanPackageShowResponse>emitter(pending::add));
+
+        var subscriber = underTest.retrieveAll(query("a", "b", "c"), "token")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create());
+
+        assertThat(pending).hasSize(2);
+        pending.get(0).complete(packageShow("2024-01-01T00:00:00.000000"));
+        assertThat(pending).hasSize(3);
+        pending.get(1).complete(packageShow("2024-01-01T00:00:00.000000"));
+        pending.get(2).complete(packageShow("2024-01-01T00:00:00.000000"));
+
+        assertThat(subscriber.awaitItem().getItem().getResults())
+                .extracting(DatasetRetrieveResult::getId)
+                .containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void rejects_too_many_ids() {
+        assertThatThrownBy(() -> underTest.retrieveAll(query("a", "b", "c", "d"), null)
+                .await()
+                .indefinitely())
+                .isInstanceOf(TooManyDatasetIdsException.class);
+        verify(ckanQueryApi, never()).packageShow(any(), any());
+    }
+
+    private static DatasetsRetrieveQuery query(String... ids) {
+        return DatasetsRetrieveQuery.builder()
+                .ids(List.of(ids))
+                .build();
+    }
+
+    private static CkanPackageShowResponse packageShow(String metadataModified) {
+        return CkanPackageShowResponse.builder()
+                .result(CkanPackage.builder()
+                        .id("id")
+                        .metadataModified(metadataModified)
+                        .build())
+                .build();
+    }
+
+    private static PackagesSearchResponse revision(String metadataModified) {
+        return PackagesSearchResponse.builder()
+                .result(PackagesSearchResult.builder()
+                        .count(1)
+                        .results(List.of(CkanPackage.builder()
+                                .id("id")
+                                .metadataModified(metadataModified)
+                                .build()))
+                        .build())
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
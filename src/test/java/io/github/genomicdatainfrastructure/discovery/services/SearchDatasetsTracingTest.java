@@ -0,0 +1,216 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.api.BeaconQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsResponseContent;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconResultSet;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.api.KeycloakQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.model.KeycloakTokenResponse;
+import io.github.genomicdatainfrastructure.discovery.repositories.BeaconDatasetsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.inject.Instance;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+class SearchDatasetsTracingTest {
+
+    private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    private final AtomicReference<String> beaconCallSpanId = new AtomicReference<>();
+    private BeaconQueryApi beaconQueryApi;
+    private SearchDatasetsService underTest;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        var ckanQueryApi = mock(CkanQueryApi.class);
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(1)
+                                .results(List.of(CkanPackage.builder()
+                                        .id("id")
+                                        .identifier("id")
+                                        .title("title")
+                                        .build()))
+                                .build())
+                        .build()));
+
+        var keycloakQueryApi = mock(KeycloakQueryApi.class);
+        when(keycloakQueryApi.retriveIdpTokens(any(), any()))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .expiresIn(300)
+                        .build()));
+
+        beaconQueryApi = mock(BeaconQueryApi.class);
+        when(beaconQueryApi.listIndividuals(any(), any())).thenAnswer(invocation -> {
+            beaconCallSpanId.set(Span.current().getSpanContext().getSpanId());
+            return Uni.createFrom().item(BeaconIndividualsResponse.builder()
+                    .response(BeaconIndividualsResponseContent.builder()
+                            .resultSets(List.of(BeaconResultSet.builder()
+                                    .id("id")
+                                    .setType("dataset")
+                                    .resultsCount(3)
+                                    .build()))
+                            .build())
+                    .build());
+        });
+
+        var beaconFilteringTermsService = mock(BeaconFilteringTermsService.class);
+        when(beaconFilteringTermsService.listFilteringTerms(any()))
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
+                        .key("beacon")
+                        .facets(List.of())
+                        .build()));
+
+        var tracer = tracerProvider.get("test");
+        var repository = new BeaconDatasetsRepository(
+                new CkanSearchService(
+                        ckanQueryApi,
+                        100,
+                        Duration.ofMinutes(1),
+                        1000,
+                        100,
+                        false,
+                        new CkanHedging(false, 0.95, Duration.ZERO, 0.1, ckanQueryApi,
+                                new SimpleMeterRegistry()),
+                        new SimpleMeterRegistry()
+                ),
+                beaconQueryApi,
+                new BeaconAuthorizationService(
+                        keycloakQueryApi,
+                        "beaconIdpAlias",
+                        100,
+                        Duration.ofSeconds(30),
+                        Duration.ofSeconds(60),
+                        Duration.ofSeconds(30),
+                        new SimpleMeterRegistry()
+                ),
+                beaconFilteringTermsService,
+                new BeaconCallGuard(
+                        20,
+                        10,
+                        0.5,
+                        Duration.ofSeconds(30),
+                        0.99,
+                        3,
+                        Duration.ofSeconds(2),
+                        Duration.ofSeconds(20),
+                        new SimpleMeterRegistry()
+                ),
+                100,
+                Duration.ofMinutes(1),
+                new SimpleMeterRegistry(),
+                tracer
+        );
+
+        underTest = new SearchDatasetsService();
+        underTest.datasetsRepository = mock(Instance.class);
+        when(underTest.datasetsRepository.get()).thenReturn(repository);
+        underTest.tracer = tracer;
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void records_search_and_beacon_spans_with_query_attributes() {
+        var response = underTest.search(query(), "accessToken")
+                .await()
+                .indefinitely();
+
+        assertThat(response.getCount()).isEqualTo(1);
+
+        var search = span("discovery.search");
+        assertThat(search.getAttributes().get(SearchDatasetsService.FACETS)).isEqualTo(2L);
+        assertThat(search.getAttributes().get(SearchDatasetsService.BEACON_FILTERS))
+                .isEqualTo(1L);
+        assertThat(search.getAttributes().get(SearchDatasetsService.ROWS)).isEqualTo(25L);
+        assertThat(search.getAttributes().get(SearchDatasetsService.RESULTS)).isEqualTo(1L);
+
+        var beacon = span("beacon.individuals");
+        assertThat(beacon.getParentSpanId()).isEqualTo(search.getSpanId());
+        assertThat(beacon.getTraceId()).isEqualTo(search.getTraceId());
+        assertThat(beacon.getAttributes().get(SearchDatasetsService.BEACON_FILTERS))
+                .isEqualTo(1L);
+        assertThat(beacon.getAttributes().get(BeaconDatasetsRepository.RESULT_SETS))
+                .isEqualTo(1L);
+        assertThat(beaconCallSpanId.get()).isEqualTo(beacon.getSpanId());
+    }
+
+    @Test
+    void marks_spans_as_failed_when_beacon_fails() {
+        when(beaconQueryApi.listIndividuals(any(), any()))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException(400)));
+
+        assertThatThrownBy(() -> underTest.search(query(), "accessToken")
+                .await()
+                .indefinitely())
+                .isInstanceOf(WebApplicationException.class);
+
+        assertThat(span("beacon.individuals").getStatus().getStatusCode())
+                .isEqualTo(StatusCode.ERROR);
+        assertThat(span("discovery.search").getStatus().getStatusCode())
+                .isEqualTo(StatusCode.ERROR);
+    }
+
+    private SpanData span(String name) {
+        return exporter.getFinishedSpanItems()
+                .stream()
+                .filter(it -> name.equals(it.getName()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private DatasetSearchQuery query() {
+        return DatasetSearchQuery.builder()
+                .rows(25)
+                .facets(List.of(
+                        DatasetSearchQueryFacet.builder()
+                                .facetGroup("beacon")
+                                .facet("key")
+                                .value("value")
+                                .build(),
+                        DatasetSearchQueryFacet.builder()
+                                .facetGroup("ckan")
+                                .facet("theme")
+                                .value("health")
+                                .build()))
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.github.genomicdatainfrastructure.discovery.utils.Instrumentation;
+import io.github.genomicdatainfrastructure.discovery.utils.ServerTiming;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.common.vertx.VertxContext;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+class ServerTimingTest {
+
+    private final Vertx vertx = Vertx.vertx();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        vertx.close().toCompletionStage().toCompletableFuture().join();
+    }
+
+    @Test
+    void records_stages_upstream_calls_mappings_and_caches_of_the_current_request() throws Exception {
+        var header = onDuplicatedContext(() -> {
+            ServerTiming.start();
+            Instrumentation.stage(meterRegistry, "ckan_search",
+                    () -> Instrumentation.upstream(meterRegistry, "ckan", "package_search",
+                            () -> Uni.createFrom().item("response")))
+                    .await()
+                    .indefinitely();
+            Instrumentation.mapping(meterRegistry, "packages_search", () -> "mapped");
+            ServerTiming.cache("ckan-anonymous-search", () -> false);
+            return ServerTiming.finish().header();
+        });
+
+        assertThat(header)
+                .matches("ckan\\.package_search;dur=\\d+\\.\\d{3}, "
+                        + "stage\\.ckan_search;dur=\\d+\\.\\d{3}, "
+                        + "mapping\\.packages_search;dur=\\d+\\.\\d{3}, "
+                        + "ckan-anonymous-search;desc=\"miss\", "
+                        + "total;dur=\\d+\\.\\d{3}");
+    }
+
+    @Test
+    void ignores_requests_without_timing() throws Exception {
+        var timing = onDuplicatedContext(() -> {
+            Instrumentation.mapping(meterRegistry, "packages_search", () -> "mapped");
+            ServerTiming.cache("ckan-anonymous-search", () -> {
+                throw new AssertionError("cache lookup without timing");
+            });
+            return ServerTiming.finish();
+        });
+
+        assertThat(timing).isNull();
+        assertThat(ServerTiming.finish()).isNull();
+    }
+
+    private <T> T onDuplicatedContext(Supplier<T> action) throws Exception {
+        var result = new CompletableFuture<T>();
+        VertxContext.createNewDuplicatedContext(vertx.getOrCreateContext())
+                .runOnContext(ignored -> {
+                    try {
+                        result.complete(action.get());
+                    } catch (RuntimeException | AssertionError e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+        return result.get(10, TimeUnit.SECONDS);
+    }
+}
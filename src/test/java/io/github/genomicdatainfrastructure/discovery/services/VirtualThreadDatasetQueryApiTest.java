@@ -0,0 +1,196 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.github.genomicdatainfrastructure.discovery.api.VirtualThreadDatasetQueryApi;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQueryFacet;
+import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.api.BeaconQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconIndividualsResponseContent;
+import io.github.genomicdatainfrastructure.discovery.remote.beacon.model.BeaconResultSet;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.api.KeycloakQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.keycloak.model.KeycloakTokenResponse;
+import io.github.genomicdatainfrastructure.discovery.repositories.BeaconDatasetsRepository;
+import io.github.genomicdatainfrastructure.discovery.repositories.DatasetsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.quarkus.oidc.runtime.OidcJwtCallerPrincipal;
+import io.quarkus.security.identity.SecurityIdentity;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.inject.Instance;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class VirtualThreadDatasetQueryApiTest {
+
+    private static final int CONCURRENT_SEARCHES = 2000;
+    private static final Duration BEACON_LATENCY = Duration.ofSeconds(1);
+
+    private final List<RecordedEvent> pinnedEvents = new CopyOnWriteArrayList<>();
+    private RecordingStream pinnedThreads;
+    private ExecutorService virtualThreads;
+    private VirtualThreadDatasetQueryApi underTest;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        pinnedThreads = new RecordingStream();
+        pinnedThreads.enable("jdk.VirtualThreadPinned").withStackTrace();
+        pinnedThreads.onEvent("jdk.VirtualThreadPinned", pinnedEvents::add);
+        pinnedThreads.startAsync();
+
+        var ckanQueryApi = mock(CkanQueryApi.class);
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(0)
+                                .results(List.of())
+                                .build())
+                        .build()));
+
+        var keycloakQueryApi = mock(KeycloakQueryApi.class);
+        when(keycloakQueryApi.retriveIdpTokens(any(), any()))
+                .thenReturn(Uni.createFrom().item(KeycloakTokenResponse.builder()
+                        .accessToken("beaconAccessToken")
+                        .expiresIn(300)
+                        .build()));
+
+        var beaconQueryApi = mock(BeaconQueryApi.class);
+        when(beaconQueryApi.listIndividuals(any(), any()))
+                .thenReturn(Uni.createFrom().item(BeaconIndividualsResponse.builder()
+                        .response(BeaconIndividualsResponseContent.builder()
+                                .resultSets(List.of(BeaconResultSet.builder()
+                                        .id("id")
+                                        .setType("dataset")
+                                        .resultsCount(1)
+                                        .build()))
+                                .build())
+                        .build())
+                        .onItem()
+                        .delayIt()
+                        .by(BEACON_LATENCY));
+
+        var beaconFilteringTermsService = mock(BeaconFilteringTermsService.class);
+        when(beaconFilteringTermsService.listFilteringTerms(any()))
+                .thenReturn(Uni.createFrom().item(FacetGroup.builder()
+                        .key("beacon")
+                        .facets(List.of())
+                        .build()));
+
+        var repository = new BeaconDatasetsRepository(
+                new CkanSearchService(
+                        ckanQueryApi,
+                        100,
+                        Duration.ofMinutes(1),
+                        1000,
+                        100,
+                        false,
+                        new CkanHedging(false, 0.95, Duration.ZERO, 0.1, ckanQueryApi,
+                                new SimpleMeterRegistry()),
+                        new SimpleMeterRegistry()
+                ),
+                beaconQueryApi,
+                new BeaconAuthorizationService(
+                        keycloakQueryApi,
+                        "beaconIdpAlias",
+                        100,
+                        Duration.ofSeconds(30),
+                        Duration.ofSeconds(60),
+                        Duration.ofSeconds(30),
+                        new SimpleMeterRegistry()
+                ),
+                beaconFilteringTermsService,
+                new BeaconCallGuard(
+                        20,
+                        10,
+                        0.5,
+                        Duration.ofSeconds(30),
+                        0.99,
+                        3,
+                        Duration.ofSeconds(20),
+                        Duration.ofSeconds(20),
+                        new SimpleMeterRegistry()
+                ),
+                100,
+                Duration.ofMinutes(1),
+                new SimpleMeterRegistry(),
+                OpenTelemetry.noop().getTracer("test")
+        );
+        var searchDatasetsService = new SearchDatasetsService();
+        searchDatasetsService.datasetsRepository = mock(Instance.class);
+        when(searchDatasetsService.datasetsRepository.get()).thenReturn(repository);
+        searchDatasetsService.tracer = OpenTelemetry.noop().getTracer("test");
+
+        var principal = mock(OidcJwtCallerPrincipal.class);
+        when(principal.getRawToken()).thenReturn("dummy");
+        var identity = mock(SecurityIdentity.class);
+        when(identity.isAnonymous()).thenReturn(false);
+        when(identity.getPrincipal()).thenReturn(principal);
+
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        underTest = new VirtualThreadDatasetQueryApi(identity, searchDatasetsService, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        virtualThreads.close();
+        pinnedThreads.stop();
+        pinnedThreads.close();
+        assertThat(pinnedEvents).isEmpty();
+    }
+
+    @Test
+    void serves_more_concurrent_searches_than_platform_workers_while_beacon_is_slow() throws Exception {
+        var started = System.nanoTime();
+
+        // Each search blocks its own virtual thread, as @RunOnVirtualThread does per request
+        var searches = new ArrayList<Future<Integer>>();
+        for (var i = 0; i < CONCURRENT_SEARCHES; i++) {
+            var query = query("value" + i);
+            searches.add(virtualThreads.submit(() -> underTest.datasetSearch(query)
+                    .getFacetGroupCount()
+                    .get("beacon")));
+        }
+
+        for (var search : searches) {
+            assertThat(search.get(30, TimeUnit.SECONDS)).isEqualTo(1);
+        }
+
+        var elapsed = Duration.ofNanos(System.nanoTime() - started);
+        assertThat(elapsed).isLessThan(BEACON_LATENCY.multipliedBy(10));
+    }
+
+    private DatasetSearchQuery query(String value) {
+        return DatasetSearchQuery.builder()
+                .facets(List.of(DatasetSearchQueryFacet.builder()
+                        .facetGroup("beacon")
+                        .facet("key")
+                        .value(value)
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,194 @@
+// SPDX-FileCopyrightText: 2024 PNED G.I.E.
+//
+// SPDX-License-Identifier: Apache-2.0
+
+package io.github.genomicdatainfrastructure.discovery.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.genomicdatainfrastructure.discovery.model.DatasetSearchQuery;
+import io.github.genomicdatainfrastructure.discovery.model.FacetGroup;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.api.CkanQueryApi;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackage;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.CkanPackageShowResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResponse;
+import io.github.genomicdatainfrastructure.discovery.remote.ckan.model.PackagesSearchResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+class WarmStateSnapshotServiceTest {
+
+    private static final FacetGroup FILTERING_TERMS = FacetGroup.builder()
+            .key("beacon")
+            .label("Beacon")
+            .facets(List.of())
+            .build();
+
+    @TempDir
+    Path snapshotDirectory;
+
+    private CkanQueryApi ckanQueryApi;
+    private Clock clock;
+
+    @BeforeEach
+    void setUp() {
+        ckanQueryApi = mock(CkanQueryApi.class);
+        clock = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+        when(ckanQueryApi.packageSearch(any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Uni.createFrom().item(PackagesSearchResponse.builder()
+                        .result(PackagesSearchResult.builder()
+                                .count(1)
+                                .results(List.of(CkanPackage.builder()
+                                        .id("id")
+                                        .title("title")
+                                        .metadataModified("2024-01-01T00:00:00.000000")
+                                        .build()))
+                                .build())
+                        .build()));
+        when(ckanQueryApi.packageShow("id", null))
+                .thenReturn(Uni.createFrom().item(CkanPackageShowResponse.builder()
+                        .result(CkanPackage.builder()
+                                .id("id")
+                                .title("title")
+                                .metadataModified("2024-01-01T00:00:00.000000")
+                                .build())
+                        .build()));
+    }
+
+    @Test
+    void restores_warm_state_into_fresh_caches() {
+        var filteringTerms = mock(BeaconFilteringTermsService.class);
+        when(filteringTerms.publicFilteringTerms()).thenReturn(Optional.of(FILTERING_TERMS));
+        var searches = searchService();
+        var datasets = retrieveService();
+        var searched = searches.search(DatasetSearchQuery.builder().build(), null)
+                .await()
+                .indefinitely();
+        var retrieved = datasets.retrieve("id", null).await().indefinitely();
+        snapshotService(filteringTerms, searches, datasets, clock).save();
+
+        var restoredFilteringTerms = mock(BeaconFilteringTermsService.class);
+        var restoredSearches = searchService();
+        var restoredDatasets = retrieveService();
+        var restored = snapshotService(restoredFilteringTerms, restoredSearches,
+                restoredDatasets, clock).restore();
+
+        assertThat(restored).isTrue();
+        verify(restoredFilteringTerms).restorePublicFilteringTerms(FILTERING_TERMS);
+        assertThat(restoredSearches.search(DatasetSearchQuery.builder().build(), null)
+                .await()
+                .indefinitely())
+                .isEqualTo(searched);
+        assertThat(restoredDatasets.retrieve("id", null).await().indefinitely())
+                .isEqualTo(retrieved);
+        verify(ckanQueryApi, times(1))
+                .packageSearch(any(), any(), any(), any(), any(), any(), any(), any());
+        verify(ckanQueryApi, times(1)).packageShow("id", null);
+    }
+
+    @Test
+    void searches_ckan_again_when_restored_searches_have_expired() {
+        var filteringTerms = mock(BeaconFilteringTermsService.class);
+        var searches = searchService();
+        searches.search(DatasetSearchQuery.builder().build(), null).await().indefinitely();
+        snapshotService(filteringTerms, searches, retrieveService(), clock).save();
+
+        var restoredSearches = searchService();
+        var restored = snapshotService(mock(BeaconFilteringTermsService.class), restoredSearches,
+                retrieveService(), Clock.offset(clock, Duration.ofMinutes(2))).restore();
+        restoredSearches.search(DatasetSearchQuery.builder().build(), null)
+                .await()
+                .indefinitely();
+
+        assertThat(restored).isTrue();
+        verify(ckanQueryApi, times(2))
+                .packageSearch(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void skips_the_write_when_the_snapshot_file_cannot_be_written() throws Exception {
+        Files.writeString(snapshotDirectory.resolve("not-a-directory"), "");
+        var snapshotService = new WarmStateSnapshotService(
+                mock(BeaconFilteringTermsService.class),
+                searchService(),
+                retrieveService(),
+                new ObjectMapper().findAndRegisterModules(),
+                snapshotDirectory.resolve("not-a-directory/warm-state.json.gz").toString(),
+                Duration.ofHours(1),
+                10,
+                clock
+        );
+
+        assertThatCode(snapshotService::save).doesNotThrowAnyException();
+        assertThat(snapshotService.restore()).isFalse();
+    }
+
+    @Test
+    void ignores_snapshots_older_than_the_maximum_age() {
+        var filteringTerms = mock(BeaconFilteringTermsService.class);
+        when(filteringTerms.publicFilteringTerms()).thenReturn(Optional.of(FILTERING_TERMS));
+        snapshotService(filteringTerms, searchService(), retrieveService(), clock).save();
+
+        var restoredFilteringTerms = mock(BeaconFilteringTermsService.class);
+        var restored = snapshotService(restoredFilteringTerms, searchService(),
+                retrieveService(), Clock.offset(clock, Duration.ofHours(2))).restore();
+
+        assertThat(restored).isFalse();
+        verify(restoredFilteringTerms, never()).restorePublicFilteringTerms(any());
+    }
+
+    private CkanSearchService searchService() {
+        return new CkanSearchService(ckanQueryApi, 100, Duration.ofMinutes(1), 1000, 100,
+                false, hedging(), new SimpleMeterRegistry());
+    }
+
+    private RetrieveDatasetService retrieveService() {
+        return new RetrieveDatasetService(ckanQueryApi, 100, Duration.ofHours(1),
+                Duration.ofMinutes(1), Duration.ofSeconds(30), 8, 100, hedging(),
+                new SimpleMeterRegistry(), clock);
+    }
+
+    private CkanHedging hedging() {
+        return new CkanHedging(false, 0.95, Duration.ZERO, 0.1, ckanQueryApi,
+                new SimpleMeterRegistry());
+    }
+
+    private WarmStateSnapshotService snapshotService(
+            BeaconFilteringTermsService filteringTerms,
+            CkanSearchService searches,
+            RetrieveDatasetService datasets,
+            Clock snapshotClock
+    ) {
+        return new WarmStateSnapshotService(
+                filteringTerms,
+                searches,
+                datasets,
+                new ObjectMapper().findAndRegisterModules(),
+                snapshotDirectory.resolve("warm-state.json.gz").toString(),
+                Duration.ofHours(1),
+                10,
+                snapshotClock
+        );
+    }
+}